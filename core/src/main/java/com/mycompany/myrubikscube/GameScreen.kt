@@ -25,6 +25,7 @@ import com.badlogic.gdx.graphics.g3d.utils.CameraInputController
 import com.badlogic.gdx.graphics.Color
 import com.badlogic.gdx.graphics.g3d.ModelInstance
 import com.mycompany.myrubikscube.cube.CubeListener
+import com.mycompany.myrubikscube.graphics.CubeView
 import com.mycompany.myrubikscube.cube.RubiksCube3x3x3
 import com.mycompany.myrubikscube.cs.min2phase.Search
 import com.mycompany.myrubikscube.cube.Cube
@@ -36,6 +37,7 @@ class GameScreen(
 ) : Screen, CubeListener {
 
     private lateinit var cube: RubiksCube3x3x3
+    private lateinit var cubeView: CubeView
     private lateinit var batch: ModelBatch
     private lateinit var camera: PerspectiveCamera
     private lateinit var env: Environment
@@ -52,6 +54,8 @@ class GameScreen(
 
     private var solutionSteps: List<com.mycompany.myrubikscube.cube.Rotation> = emptyList()
     private var currentStepIndex: Int = 0
+    // index of the first step of each layer by layer stage -> its name
+    private var stageStarts: Map<Int, String> = emptyMap()
     private var isStepByStepSolving: Boolean = false
 
     // Extra texture if needed (for example, for alternative button backgrounds)
@@ -95,6 +99,7 @@ class GameScreen(
             setRenderer(Renderer())
             setListener(this@GameScreen)
         }
+        cubeView = CubeView(cube)
 
         initialCubeString?.let { scannedCubeString ->
             onCubeScanned(scannedCubeString)
@@ -188,7 +193,7 @@ class GameScreen(
         rootTable.add(mainMenuButton).colspan(2).width(500f).height(100f).pad(10f)
 
         // Combine input processors: UI stage, cube input, and camera controller.
-        val multiplexer = InputMultiplexer(stage, InputHandler(cube, camera), cameraController)
+        val multiplexer = InputMultiplexer(stage, InputHandler(cube, cubeView, camera), cameraController)
         Gdx.input.inputProcessor = multiplexer
     }
 
@@ -211,6 +216,7 @@ class GameScreen(
         // --- Draw the 3D cube ---
         cameraController.update()
         batch.begin(camera)
+        cubeView.sync()
         cube.draw()
         batch.end()
         cube.onNextFrame()
@@ -239,6 +245,7 @@ class GameScreen(
     override fun dispose() {
         Gdx.app.log("GameScreen", "Disposing GameScreen resources")
         batch.dispose()
+        cubeView.dispose()
         stage.dispose()
         backgroundBatch.dispose()
         buttonTexture.dispose()
@@ -319,8 +326,9 @@ class GameScreen(
             y: Float,
             z: Float
         ) {
-            square.modelInstance.transform.setToRotation(x, y, z, angle)
-            batch.render(square.modelInstance, env)
+            val view = cubeView.viewOf(square)
+            view.modelInstance.transform.setToRotation(x, y, z, angle)
+            batch.render(view.modelInstance, env)
         }
     }
 
@@ -331,7 +339,9 @@ class GameScreen(
         solveStepByStepButton.isDisabled = true
 
         Thread {
-            val steps = cube.computeSolutionSteps()
+            // layer by layer stages, or the shortest solution if the last layer table is not available
+            val stages = cube.computeTutorialSteps()
+            val steps = stages?.flatten() ?: cube.computeSolutionSteps()
             if (steps == null || steps.isEmpty()) {
                 Gdx.app.postRunnable {
                     sendMessage("No solution steps available.")
@@ -340,6 +350,7 @@ class GameScreen(
                 return@Thread
             }
             solutionSteps = steps
+            stageStarts = stageStarts(stages)
             currentStepIndex = 0
             isStepByStepSolving = true
 
@@ -369,6 +380,7 @@ class GameScreen(
             return
         }
 
+        stageStarts[currentStepIndex]?.let { sendMessage(it) }
         val step = solutionSteps[currentStepIndex]
         val algo = com.mycompany.myrubikscube.cube.Algorithm().apply { addStep(step) }
         Gdx.app.postRunnable {
@@ -386,6 +398,19 @@ class GameScreen(
         }
     }
 
+    private fun stageStarts(stages: List<List<com.mycompany.myrubikscube.cube.Rotation>>?): Map<Int, String> {
+        if (stages == null) return emptyMap()
+        val starts = HashMap<Int, String>()
+        var index = 0
+        stages.forEachIndexed { i, stage ->
+            if (stage.isNotEmpty()) {
+                starts[index] = STAGE_NAMES[i]
+            }
+            index += stage.size
+        }
+        return starts
+    }
+
     private fun applyPreviousStep() {
         if (!isStepByStepSolving || currentStepIndex <= 0) {
             sendMessage("Already at the first step.")
@@ -440,4 +465,9 @@ class GameScreen(
         }
     }
     override fun onAlgorithmCompleted() { applyNextStep() }
+
+    companion object {
+        private val STAGE_NAMES = listOf("Cross", "First pair", "Second pair", "Third pair", "Fourth pair",
+            "Orient the last layer", "Permute the last layer")
+    }
 }
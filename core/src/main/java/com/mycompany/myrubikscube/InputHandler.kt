@@ -6,9 +6,13 @@ import com.badlogic.gdx.math.Intersector
 import com.badlogic.gdx.math.Vector3
 import com.badlogic.gdx.math.collision.Ray
 import com.mycompany.myrubikscube.cube.RubiksCube
-import com.mycompany.myrubikscube.cube.Square
+import com.mycompany.myrubikscube.graphics.CubeView
 
-class InputHandler(private val cube: RubiksCube, private val camera: Camera) : InputAdapter() {
+class InputHandler(
+    private val cube: RubiksCube,
+    private val cubeView: CubeView,
+    private val camera: Camera
+) : InputAdapter() {
 
     companion object {
         private const val TAG = "rubik-touch"
@@ -52,15 +56,14 @@ class InputHandler(private val cube: RubiksCube, private val camera: Camera) : I
         val ray: Ray = camera.getPickRay(x.toFloat(), y.toFloat())
         var result = -1
         var distance = -1f
-        val squares = cube.getSquares()
-        for (i in squares.indices) {
-            val square = squares[i]
-            val inst = square.modelInstance
+        for (i in 0 until cubeView.size) {
+            val view = cubeView[i]
+            val inst = view.modelInstance
             inst.transform.getTranslation(position)
-            position.add(square.center())
+            position.add(view.center())
             val dist2 = ray.origin.dst2(position)
             if (distance > 0 && dist2 > distance) continue
-            if (Intersector.intersectRaySphere(ray, position, square.radius(), null)) {
+            if (Intersector.intersectRaySphere(ray, position, view.radius(), null)) {
                 result = i
                 distance = dist2
             }
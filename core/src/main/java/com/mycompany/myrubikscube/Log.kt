@@ -2,14 +2,17 @@ package com.mycompany.myrubikscube
 
 import com.badlogic.gdx.Gdx
 
+/**
+ * Logs through libGDX when it is running, so that the cube model also works headless.
+ */
 object Log {
     fun w(tag: String, msg: String) {
-        Gdx.app.log(tag, msg)
+        Gdx.app?.log(tag, msg)
     }
     fun d(tag: String, msg: String) {
-        Gdx.app.log(tag, msg)
+        Gdx.app?.log(tag, msg)
     }
     fun e(tag: String, msg: String) {
-        Gdx.app.log(tag, msg)
+        Gdx.app?.log(tag, msg)
     }
 }
@@ -0,0 +1,183 @@
+package com.mycompany.myrubikscube.cs.min2phase;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Optimal search which periodically saves its position to a file, so that a long search can go on
+ * after the process is restarted.<br>
+ * A checkpoint is written at a phase 1 leaf, where the move stack up to depth1 is the exact path
+ * to the leaf. {@link #resume()} replays the search to that leaf like {@link Search#next(long, long, int)}
+ * does with isRec, and probes it again. The best solution found so far is saved with it, so that a search
+ * with probeMin &gt; 0 goes on from it. The file is deleted when the search returns.<br>
+ * Only {@link Search#OPTIMAL_SOLUTION} searches are checkpointed.
+ */
+public class CheckpointSearch extends Search {
+
+    static final int MAGIC = 0x6d327063;
+    static final int VERSION = 2;
+
+    private final File file;
+    private final long intervalMillis;
+    private long nextCheckpoint;
+    private String facelets;
+    private int maxDepth;
+    private int checkpoints;
+
+    /**
+     * @param file
+     *      the checkpoint file. It is written through a temporary file in the same directory.
+     *
+     * @param intervalMillis
+     *      minimum time between two checkpoints in milliseconds.
+     */
+    public CheckpointSearch(File file, long intervalMillis) {
+        this.file = file;
+        this.intervalMillis = intervalMillis;
+    }
+
+    @Override
+    public synchronized String solution(String facelets, int maxDepth, long probeMax, long probeMin, int verbose) {
+        this.facelets = facelets;
+        this.maxDepth = maxDepth;
+        this.checkpoints = 0;
+        this.nextCheckpoint = System.currentTimeMillis() + intervalMillis;
+        try {
+            return super.solution(facelets, maxDepth, probeMax, probeMin, verbose);
+        } finally {
+            this.facelets = null;
+            file.delete();
+        }
+    }
+
+    /**
+     * @return whether a checkpoint file exists.
+     */
+    public boolean hasCheckpoint() {
+        return file.exists();
+    }
+
+    /**
+     * Goes on with the search saved in the checkpoint file.
+     *
+     * @return the same as {@link Search#solution(String, int, long, long, int)} with the saved arguments.
+     *
+     * @throws IOException if the checkpoint file cannot be read.
+     */
+    public synchronized String resume() throws IOException {
+        DataInputStream in = new DataInputStream(new FileInputStream(file));
+        int[] path;
+        Util.Solution sol;
+        try {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a checkpoint file: " + file);
+            }
+            facelets = in.readUTF();
+            maxDepth = in.readInt();
+            probeMax = in.readLong();
+            probeMin = in.readLong();
+            verbose = in.readInt();
+            length1 = in.readInt();
+            urfIdx = in.readInt();
+            probe = in.readLong();
+            path = new int[in.readInt()];
+            for (int i = 0; i < path.length; i++) {
+                path[i] = in.readByte();
+            }
+            sol = null;
+            if (in.readBoolean()) {
+                sol = new Util.Solution();
+                sol.setArgs(verbose, in.readInt(), in.readInt());
+                sol.length = in.readInt();
+                for (int i = 0; i < sol.length; i++) {
+                    sol.moves[i] = in.readByte();
+                }
+            }
+        } finally {
+            in.close();
+        }
+
+        int check = verify(facelets);
+        if (check != 0) {
+            throw new IOException("Invalid cube in checkpoint file: " + file);
+        }
+        solution = sol;
+        solLen = sol == null ? maxDepth + 1 : sol.length;
+        isDirect = false;
+        CoordCube.init(false);
+        initSearch();
+        System.arraycopy(path, 0, move, 0, path.length);
+        valid1 = 0;
+        isRec = true;
+        nextCheckpoint = System.currentTimeMillis() + intervalMillis;
+        try {
+            return searchopt();
+        } finally {
+            facelets = null;
+            file.delete();
+        }
+    }
+
+    /**
+     * @return the number of checkpoints written by the last call.
+     */
+    public int numberOfCheckpoints() {
+        return checkpoints;
+    }
+
+    @Override
+    protected int initPhase2Pre() {
+        if (!isRec && facelets != null && (verbose & OPTIMAL_SOLUTION) != 0
+                && System.currentTimeMillis() >= nextCheckpoint) {
+            writeCheckpoint();
+            nextCheckpoint = System.currentTimeMillis() + intervalMillis;
+        }
+        return super.initPhase2Pre();
+    }
+
+    private void writeCheckpoint() {
+        File tmp = new File(file.getPath() + ".tmp");
+        try {
+            DataOutputStream out = new DataOutputStream(new FileOutputStream(tmp));
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(facelets);
+                out.writeInt(maxDepth);
+                out.writeLong(probeMax);
+                out.writeLong(probeMin);
+                out.writeInt(verbose);
+                out.writeInt(length1);
+                out.writeInt(urfIdx);
+                out.writeLong(probe);
+                out.writeInt(depth1);
+                for (int i = 0; i < depth1; i++) {
+                    out.writeByte(move[i]);
+                }
+                out.writeBoolean(solution != null);
+                if (solution != null) {
+                    out.writeInt(solution.urfIdx);
+                    out.writeInt(solution.depth1);
+                    out.writeInt(solution.length);
+                    for (int i = 0; i < solution.length; i++) {
+                        out.writeByte(solution.moves[i]);
+                    }
+                }
+            } finally {
+                out.close();
+            }
+            if (!tmp.renameTo(file)) {
+                file.delete();
+                tmp.renameTo(file);
+            }
+            checkpoints++;
+        } catch (IOException e) {
+            // keep searching, the previous checkpoint is still valid
+            tmp.delete();
+        }
+    }
+}
@@ -1,5 +1,11 @@
 package com.mycompany.myrubikscube.cs.min2phase;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+
 class CoordCube {
     static final int N_MOVES = 18;
     static final int N_MOVES2 = 10;
@@ -48,17 +54,7 @@ class CoordCube {
             return;
         }
         if (initLevel == 0) {
-            CubieCube.initPermSym2Raw();
-            initCPermMove();
-            initEPermMove();
-            initMPermMoveConj();
-            initCombPMoveConj();
-
-            CubieCube.initFlipSym2Raw();
-            CubieCube.initTwistSym2Raw();
-            initFlipMove();
-            initTwistMove();
-            initUDSliceMoveConj();
+            initMoveTables();
         }
         initMCPermPrun(fullInit);
         initPermCombPPrun(fullInit);
@@ -70,6 +66,81 @@ class CoordCube {
         initLevel = fullInit ? 2 : 1;
     }
 
+    static void initMoveTables() {
+        CubieCube.initPermSym2Raw();
+        initCPermMove();
+        initEPermMove();
+        initMPermMoveConj();
+        initCombPMoveConj();
+
+        CubieCube.initFlipSym2Raw();
+        CubieCube.initTwistSym2Raw();
+        initFlipMove();
+        initTwistMove();
+        initUDSliceMoveConj();
+    }
+
+    static int[][] prunTables() {
+        return Search.USE_TWIST_FLIP_PRUN
+               ? new int[][] {UDSliceTwistPrun, UDSliceFlipPrun, TwistFlipPrun, MCPermPrun, EPermCCombPPrun}
+               : new int[][] {UDSliceTwistPrun, UDSliceFlipPrun, MCPermPrun, EPermCCombPPrun};
+    }
+
+    static long prunTableBytes() {
+        long size = 0;
+        for (int[] table : prunTables()) {
+            size += table.length * 4L;
+        }
+        return size;
+    }
+
+    /**
+     * Writes the fully initialized pruning tables to a file which {@link #initFrom(File)} can map.
+     */
+    static synchronized void writePrun(File file) throws IOException {
+        init(true);
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(prunTableBytes());
+            IntBuffer buf = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, prunTableBytes()).asIntBuffer();
+            for (int[] table : prunTables()) {
+                buf.put(table);
+            }
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Initializes the move tables and maps the pruning tables written by {@link #writePrun(File)}
+     * instead of generating them.
+     *
+     * @return false if the file does not match, the tables are generated in that case.
+     */
+    static synchronized boolean initFrom(File file) throws IOException {
+        if (initLevel == 2) {
+            return true;
+        }
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            if (raf.length() != prunTableBytes()) {
+                init(true);
+                return false;
+            }
+            if (initLevel == 0) {
+                initMoveTables();
+            }
+            IntBuffer buf = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, prunTableBytes()).asIntBuffer();
+            for (int[] table : prunTables()) {
+                buf.get(table);
+            }
+            initLevel = 2;
+            return true;
+        } finally {
+            raf.close();
+        }
+    }
+
     static void setPruning(int[] table, int index, int value) {
         table[index >> 3] ^= value << (index << 2); // index << 2 <=> (index & 7) << 2
     }
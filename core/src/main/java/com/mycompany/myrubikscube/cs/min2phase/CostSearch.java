@@ -0,0 +1,138 @@
+package com.mycompany.myrubikscube.cs.min2phase;
+
+/**
+ * Two-phase search which enumerates solutions within a time budget and returns the cheapest one
+ * according to a cost model, e.g. the time to animate or execute it, instead of the shortest one.<br>
+ * Every phase 1 path which leads to a solution of at most maxDepth moves gives a candidate.
+ * The search goes on after a candidate is found, until the time budget runs out or the search space
+ * of maxDepth is exhausted.
+ */
+public class CostSearch extends Search {
+
+    /**
+     * Cost of a solution, lower is better.
+     */
+    public interface CostModel {
+        /**
+         * @param solution
+         *      a solution in the format of {@link Search#solution(String, int, long, long, int)}, e.g. "R2 U' F ".
+         */
+        double cost(String solution);
+    }
+
+    private CostModel model;
+    private int maxLength;
+    private long deadline;
+    private String best;
+    private double bestCost;
+    private int candidates;
+
+    /**
+     * Computes the cheapest solution found within the time budget.
+     *
+     * @param facelets
+     *      the cube definition string, see {@link Search#solution(String, int, long, long, int)}
+     *
+     * @param maxDepth
+     *      the maximal length of a candidate.
+     *
+     * @param timeBudget
+     *      the time budget in milliseconds. The first candidate is always waited for.
+     *
+     * @param model
+     *      the cost of a candidate.
+     *
+     * @return the cheapest candidate, or the error code of {@link Search#solution(String, int, long, long, int)}.
+     */
+    public synchronized String solution(String facelets, int maxDepth, long timeBudget, CostModel model) {
+        return solution(facelets, null, maxDepth, timeBudget, model);
+    }
+
+    /**
+     * Same as {@link #solution(String, int, long, CostModel)} for a cube tracked move by move, see
+     * {@link Search#solution(LiveCubie, int, long, long, int)}.
+     */
+    public synchronized String solution(LiveCubie cube, int maxDepth, long timeBudget, CostModel model) {
+        return solution(null, cube, maxDepth, timeBudget, model);
+    }
+
+    private String solution(String facelets, LiveCubie cube, int maxDepth, long timeBudget, CostModel model) {
+        this.model = model;
+        this.maxLength = maxDepth;
+        this.deadline = System.currentTimeMillis() + timeBudget;
+        this.best = null;
+        this.bestCost = Double.MAX_VALUE;
+        this.candidates = 0;
+        try {
+            String ret = cube == null
+                         ? solution(facelets, maxDepth, Long.MAX_VALUE, Long.MAX_VALUE, 0)
+                         : solution(cube, maxDepth, Long.MAX_VALUE, Long.MAX_VALUE, 0);
+            return best == null ? ret : best;
+        } finally {
+            this.model = null;
+        }
+    }
+
+    /**
+     * @return the cost of the solution returned by the last call, Double.MAX_VALUE if none.
+     */
+    public double bestCost() {
+        return bestCost;
+    }
+
+    /**
+     * @return the number of candidates scored by the last call.
+     */
+    public int numberOfCandidates() {
+        return candidates;
+    }
+
+    private void consider(String sol) {
+        candidates++;
+        double cost = model.cost(sol);
+        if (best == null || cost < bestCost) {
+            best = sol;
+            bestCost = cost;
+        }
+        // forget the candidate, so that the search neither stops nor only looks for shorter ones
+        solution = null;
+        solLen = maxLength + 1;
+    }
+
+    private boolean isTimeout() {
+        return best != null && System.currentTimeMillis() >= deadline;
+    }
+
+    @Override
+    protected String searchLastLayer() {
+        if (model == null) {
+            return super.searchLastLayer();
+        }
+        String sol = super.searchLastLayer();
+        if (sol != null) {
+            isDirect = false;
+            consider(sol);
+        }
+        return null;
+    }
+
+    @Override
+    protected String searchG1(int maxl) {
+        // phase 1 of length 0 enumerates the same solutions as candidates
+        return model == null ? super.searchG1(maxl) : null;
+    }
+
+    @Override
+    protected int initPhase2(int p2corn, int p2csym, int p2edge, int p2esym, int p2mid, int edgei, int corni) {
+        int ret = super.initPhase2(p2corn, p2csym, p2edge, p2esym, p2mid, edgei, corni);
+        if (model == null) {
+            return ret;
+        }
+        if (solution != null) {
+            consider(solution.toString());
+            maxDep2 = Math.min(MAX_DEPTH2, solLen - length1 - 1);
+            ret = 1;
+        }
+        return isTimeout() ? 0 : ret;
+    }
+}
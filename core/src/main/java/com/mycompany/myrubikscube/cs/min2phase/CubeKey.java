@@ -0,0 +1,129 @@
+package com.mycompany.myrubikscube.cs.min2phase;
+
+/**
+ * Compact value of a cube state, for dedup, caching and breadth-first tools.<br>
+ * The state is packed into two longs from the coordinates of {@link CubieCube}:
+ * hi = cperm (16 bits) << 12 | twist (12 bits), lo = eperm (29 bits, all 12 edges) << 11 | flip (11 bits).
+ * The solved cube is (0, 0). Hot loops can use {@link #hi(CubieCube)} and {@link #lo(CubieCube)} with
+ * {@link LongLongHashSet} or {@link LongLongHashMap}, which store the two longs without boxing.<br>
+ * {@link #canonical(String, boolean)} gives the same key for all cubes which are equal up to the 48
+ * symmetries of the cube, and optionally up to inversion.
+ */
+public final class CubeKey implements Comparable<CubeKey> {
+
+    public final long hi;
+    public final long lo;
+
+    public CubeKey(long hi, long lo) {
+        this.hi = hi;
+        this.lo = lo;
+    }
+
+    /**
+     * @param facelets
+     *      the cube definition string, see {@link Search#solution(String, int, long, long, int)}
+     *
+     * @throws IllegalArgumentException if the cube is not solvable.
+     */
+    public static CubeKey of(String facelets) {
+        CubieCube cc = toCubieCube(facelets);
+        return new CubeKey(hi(cc), lo(cc));
+    }
+
+    /**
+     * @return the smallest key of the cube conjugated by the 48 symmetries, and of its inverse if
+     *      withInverse is set.
+     *
+     * @throws IllegalArgumentException if the cube is not solvable.
+     */
+    public static CubeKey canonical(String facelets, boolean withInverse) {
+        long[] key = new long[2];
+        canonical(toCubieCube(facelets), withInverse, key);
+        return new CubeKey(key[0], key[1]);
+    }
+
+    private static CubieCube toCubieCube(String facelets) {
+        Search search = new Search();
+        int check = search.verify(facelets);
+        if (check != 0) {
+            throw new IllegalArgumentException("Invalid cube: Error " + -check);
+        }
+        return search.cc;
+    }
+
+    /**
+     * @return the cube definition string of this key.
+     */
+    public String toFacelets() {
+        CubieCube cc = new CubieCube();
+        decode(hi, lo, cc);
+        return Util.toFaceCube(cc);
+    }
+
+    static long hi(CubieCube cc) {
+        return (long) cc.getCPerm() << 12 | cc.getTwist();
+    }
+
+    static long lo(CubieCube cc) {
+        return (long) Util.getNPerm(cc.ea, 12, true) << 11 | cc.getFlip();
+    }
+
+    static void decode(long hi, long lo, CubieCube cc) {
+        cc.setCPerm((int) (hi >>> 12));
+        cc.setTwist((int) (hi & 0xfff));
+        Util.setNPerm(cc.ea, (int) (lo >>> 11), 12, true);
+        cc.setFlip((int) (lo & 0x7ff));
+    }
+
+    /**
+     * key = the smallest (hi, lo) of S^-1 * cc * S over the 48 symmetries S, and of cc^-1 if withInverse.
+     */
+    static void canonical(CubieCube cc, boolean withInverse, long[] key) {
+        CubieCube c = new CubieCube(cc);
+        CubieCube d = new CubieCube();
+        key[0] = Long.MAX_VALUE;
+        key[1] = Long.MAX_VALUE;
+        for (int inv = 0; inv < (withInverse ? 2 : 1); inv++) {
+            for (int urf = 0; urf < 3; urf++) {
+                for (int s = 0; s < 16; s++) {
+                    CubieCube.CornConjugate(c, s, d);
+                    long h = hi(d);
+                    if (h > key[0]) {
+                        continue;
+                    }
+                    CubieCube.EdgeConjugate(c, s, d);
+                    long l = lo(d);
+                    if (h < key[0] || l < key[1]) {
+                        key[0] = h;
+                        key[1] = l;
+                    }
+                }
+                c.URFConjugate();
+            }
+            c.invCubieCube();
+        }
+    }
+
+    @Override
+    public int compareTo(CubeKey o) {
+        if (hi != o.hi) {
+            return hi < o.hi ? -1 : 1;
+        }
+        return lo < o.lo ? -1 : lo == o.lo ? 0 : 1;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof CubeKey && ((CubeKey) o).hi == hi && ((CubeKey) o).lo == lo;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) LongLongHashSet.mix(hi, lo);
+    }
+
+    @Override
+    public String toString() {
+        return Long.toHexString(hi) + ":" + Long.toHexString(lo);
+    }
+}
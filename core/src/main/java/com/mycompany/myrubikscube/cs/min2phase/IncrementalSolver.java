@@ -0,0 +1,178 @@
+package com.mycompany.myrubikscube.cs.min2phase;
+
+/**
+ * Keeps a solution of a cube which changes one move at a time, e.g. for a live "moves to solved" hint.<br>
+ * After a move, the inverse of the move is merged into the front of the previous solution like
+ * {@link Util.Solution#appendSolMove(int)} does, which gives a solution at once. {@link #improve(long)}
+ * then looks for a solution shorter than the current one within a time budget, and goes on from where
+ * it stopped at the next call, see {@link Search#next(long, long, int)}. One {@link Search} instance is
+ * reused for all searches.<br>
+ * Moves are min2phase move indices: U U2 U' R R2 R' F F2 F' D D2 D' L L2 L' B B2 B' = 0..17.
+ */
+public class IncrementalSolver {
+
+    private static class TimedSearch extends Search {
+        long deadline;
+
+        @Override
+        protected int initPhase2Pre() {
+            if (System.nanoTime() - deadline >= 0) {
+                return 0;
+            }
+            return super.initPhase2Pre();
+        }
+    }
+
+    private final TimedSearch search = new TimedSearch();
+    private final CubieCube cc = new CubieCube();
+    private final CubieCube tmp = new CubieCube();
+    private int[] moves = new int[0];
+    private boolean started = false;
+    private boolean stable = true;
+    private long probeLimit = 10000;
+    private long probes = 0;
+
+    /**
+     * Phase 2 probes spent on improving the solution after a move, 10000 by default. The solution is kept
+     * as it is once they are used up.
+     */
+    public void setProbeLimit(long probeLimit) {
+        this.probeLimit = probeLimit;
+    }
+
+    /**
+     * Starts from a cube with an unknown solution. {@link #length()} is -1 until {@link #improve(long)}
+     * finds one.
+     *
+     * @param facelets
+     *      the cube definition string, see {@link Search#solution(String, int, long, long, int)}
+     *
+     * @return 0 if the cube is solvable, otherwise the error code of {@link Tools#verify(String)}
+     */
+    public int setState(String facelets) {
+        int check = search.verify(facelets);
+        if (check != 0) {
+            return check;
+        }
+        cc.copy(search.cc);
+        moves = null;
+        started = false;
+        stable = false;
+        probes = 0;
+        return 0;
+    }
+
+    /**
+     * Starts from the solved cube.
+     */
+    public void reset() {
+        cc.copy(new CubieCube());
+        moves = new int[0];
+        started = false;
+        stable = true;
+        probes = 0;
+    }
+
+    /**
+     * Applies a move to the cube and updates the solution without searching.
+     */
+    public void applyMove(int move) {
+        CubieCube.CornMult(cc, CubieCube.moveCube[move], tmp);
+        CubieCube.EdgeMult(cc, CubieCube.moveCube[move], tmp);
+        cc.copy(tmp);
+        started = false;
+        probes = 0;
+        if (moves == null) {
+            return;
+        }
+        Util.Solution sol = new Util.Solution();
+        sol.moves = new int[moves.length + 1];
+        sol.appendSolMove(move / 3 * 3 + 2 - move % 3);
+        for (int m : moves) {
+            sol.appendSolMove(m);
+        }
+        moves = new int[sol.length];
+        System.arraycopy(sol.moves, 0, moves, 0, sol.length);
+        stable = moves.length <= 1;
+    }
+
+    /**
+     * Applies a move, e.g. "R2", see {@link #applyMove(int)}.
+     */
+    public void applyMove(String move) {
+        for (int m : Util.str2moves(move)) {
+            applyMove(m);
+        }
+    }
+
+    /**
+     * Looks for a shorter solution until the budget runs out. The first call after {@link #setState(String)}
+     * looks for any solution of at most 21 moves.<br>
+     * The move tables are generated by the first call, which takes longer than the budget.
+     *
+     * @return whether the solution has changed.
+     */
+    public boolean improve(long budgetMillis) {
+        if (stable) {
+            return false;
+        }
+        search.deadline = System.nanoTime() + budgetMillis * 1000000L;
+        String sol;
+        if (!started) {
+            started = true;
+            sol = search.solution(cc, moves == null ? 21 : moves.length - 1, Long.MAX_VALUE, 0, 0);
+        } else {
+            sol = search.next(Long.MAX_VALUE, 0, 0);
+        }
+        probes += search.numberOfProbes();
+        if (sol.startsWith("Error 8")) {
+            // out of time, go on at the next call unless the probes are used up
+            stable = moves != null && probes >= probeLimit;
+            return false;
+        }
+        if (sol.startsWith("Error")) {
+            // no shorter solution
+            started = false;
+            stable = true;
+            return false;
+        }
+        int[] found = Util.str2moves(sol);
+        if (moves != null && found.length >= moves.length) {
+            // not an improvement, e.g. a table or subgroup shortcut: keep the current solution
+            stable = probes >= probeLimit;
+            return false;
+        }
+        moves = found;
+        stable = moves.length <= 1;
+        return true;
+    }
+
+    /**
+     * @return whether no shorter solution can be found by {@link #improve(long)} until the next move.
+     */
+    public boolean isStable() {
+        return stable;
+    }
+
+    /**
+     * @return the length of the current solution, -1 if none is known yet.
+     */
+    public int length() {
+        return moves == null ? -1 : moves.length;
+    }
+
+    /**
+     * @return the current solution, in the format of {@link Search#solution(String, int, long, long, int)},
+     *      or null if none is known yet.
+     */
+    public String solution() {
+        if (moves == null) {
+            return null;
+        }
+        StringBuffer sb = new StringBuffer();
+        for (int m : moves) {
+            sb.append(Util.move2str[m]).append(' ');
+        }
+        return sb.toString();
+    }
+}
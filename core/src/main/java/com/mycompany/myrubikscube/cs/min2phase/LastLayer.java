@@ -0,0 +1,305 @@
+package com.mycompany.myrubikscube.cs.min2phase;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+
+/**
+ * Precomputed solutions of all last layer cases.<br>
+ * A last layer case is a cube whose D layer and E slice are solved. Cases which only differ by
+ * U turns before or after (AUF) share one entry, which leaves 3,916 entries.<br>
+ * The table is loaded from the resource "lastlayer.txt" next to this class. Each line of the
+ * resource is "key algorithm", where key is the {@link #getKey(CubieCube)} of the representative
+ * case and algorithm solves it, e.g. "2 U R U' R' ...". Lines starting with '#' are ignored.
+ */
+public class LastLayer {
+
+    static final int N_CASES = 24 * 27 * 24 * 8;
+    static final String RESOURCE = "lastlayer.txt";
+    static final long PROBE_MIN = 10000;
+
+    /**
+     * key of a case -> index of its algorithm + 1, 0 for not a representative.
+     */
+    static char[] key2Alg = null;
+    static byte[][] algs = null;
+    static int size = 0;
+    private static volatile boolean inited = false;
+
+    /**
+     * Loads the table from the resource, if it exists.
+     */
+    public static void init() {
+        if (inited) {
+            return;
+        }
+        synchronized (LastLayer.class) {
+            if (inited) {
+                return;
+            }
+            InputStream in = LastLayer.class.getResourceAsStream(RESOURCE);
+            if (in != null) {
+                try {
+                    initFrom(new BufferedReader(new InputStreamReader(in, "UTF-8")));
+                } catch (IOException e) {
+                    key2Alg = null;
+                } finally {
+                    try {
+                        in.close();
+                    } catch (IOException e) {
+                    }
+                }
+            }
+            inited = true;
+        }
+    }
+
+    /**
+     * Loads the table from a reader in the format of the resource file.
+     *
+     * @see cs.min2phase.LastLayer#saveTo(Writer)
+     */
+    public static synchronized void initFrom(BufferedReader in) throws IOException {
+        char[] k2a = new char[N_CASES];
+        byte[][] list = new byte[4096][];
+        int cnt = 0;
+        String line;
+        while ((line = in.readLine()) != null) {
+            line = line.trim();
+            if (line.length() == 0 || line.charAt(0) == '#') {
+                continue;
+            }
+            String[] tokens = line.split("\\s+");
+            int key;
+            try {
+                key = Integer.parseInt(tokens[0]);
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid last layer key: " + line);
+            }
+            if (key < 0 || key >= N_CASES) {
+                throw new IOException("Invalid last layer key: " + line);
+            }
+            byte[] alg = new byte[tokens.length - 1];
+            for (int i = 1; i < tokens.length; i++) {
+                int m = indexOfMove(tokens[i]);
+                if (m == -1) {
+                    throw new IOException("Invalid move " + tokens[i] + ": " + line);
+                }
+                alg[i - 1] = (byte) m;
+            }
+            if (cnt == list.length) {
+                byte[][] tmp = new byte[cnt * 2][];
+                System.arraycopy(list, 0, tmp, 0, cnt);
+                list = tmp;
+            }
+            list[cnt++] = alg;
+            k2a[key] = (char) cnt;
+        }
+        algs = list;
+        key2Alg = k2a;
+        size = cnt;
+        inited = true;
+    }
+
+    /**
+     * Computes the table on all available processors and writes it in the format of the resource file.<br>
+     * Each case gets the shortest solution found within {@link #PROBE_MIN} phase 2 probes, which is optimal
+     * for most cases. It takes a few minutes on one core.
+     */
+    public static void saveTo(Writer out) throws IOException {
+        Search.init();
+        final int[] keys = representatives();
+        final String[] sols = new String[keys.length];
+        Util.parallelRange(keys.length, new Util.RangeTask() {
+            public void run(int from, int to) {
+                Search search = new Search() {
+                    @Override
+                    protected String searchLastLayer() {
+                        return null;
+                    }
+                };
+                for (int i = from; i < to; i++) {
+                    sols[i] = search.solution(Util.toFaceCube(fromKey(keys[i])), 20, Long.MAX_VALUE, PROBE_MIN, 0)
+                              .trim().replaceAll("\\s+", " ");
+                }
+            }
+        });
+        out.write("# key algorithm, " + keys.length + " last layer cases up to AUF\n");
+        for (int i = 0; i < keys.length; i++) {
+            out.write(keys[i] + (sols[i].length() == 0 ? "" : " " + sols[i]) + "\n");
+        }
+        out.flush();
+    }
+
+    public static boolean isLoaded() {
+        init();
+        return key2Alg != null;
+    }
+
+    /**
+     * @return number of cases in the table.
+     */
+    public static int size() {
+        init();
+        return size;
+    }
+
+    /**
+     * Looks up a last layer case. When the case matches the table entry with several AUFs, the
+     * shortest of them is returned, U turns next to the algorithm being merged.
+     *
+     * @return the solution, or null if the cube is not a last layer case or the table is not available.
+     */
+    static Util.Solution lookup(CubieCube c, int verbose) {
+        init();
+        char[] k2a = key2Alg;
+        if (k2a == null || !isLastLayer(c)) {
+            return null;
+        }
+        CubieCube left = new CubieCube(c);
+        CubieCube tmp = new CubieCube();
+        CubieCube right = new CubieCube();
+        CubieCube u = CubieCube.moveCube[Util.Ux1];
+        Util.Solution best = null;
+        for (int pre = 0; pre < 4; pre++) {
+            right.copy(left);
+            for (int post = 0; post < 4; post++) {
+                int alg = k2a[getKey(right)];
+                if (alg != 0) {
+                    // right = U^pre * c * U^post, so c is solved by U^post, alg, U^pre
+                    Util.Solution sol = new Util.Solution();
+                    if (post != 0) {
+                        sol.appendSolMove(Util.Ux1 + post - 1);
+                    }
+                    for (byte m : algs[alg - 1]) {
+                        sol.appendSolMove(m);
+                    }
+                    if (pre != 0) {
+                        sol.appendSolMove(Util.Ux1 + pre - 1);
+                    }
+                    if (best == null || sol.length < best.length) {
+                        best = sol;
+                    }
+                }
+                CubieCube.CornMult(right, u, tmp);
+                CubieCube.EdgeMult(right, u, tmp);
+                right.copy(tmp);
+            }
+            CubieCube.CornMult(u, left, tmp);
+            CubieCube.EdgeMult(u, left, tmp);
+            left.copy(tmp);
+        }
+        if (best != null) {
+            best.setArgs(verbose, 0, best.length);
+        }
+        return best;
+    }
+
+    static boolean isLastLayer(CubieCube c) {
+        for (int i = 4; i < 8; i++) {
+            if (c.ca[i] != i) {
+                return false;
+            }
+        }
+        for (int i = 4; i < 12; i++) {
+            if (c.ea[i] != i << 1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return ((cperm * 27 + twist) * 24 + eperm) * 8 + flip of the 4 corners and 4 edges of the U layer.
+     */
+    static int getKey(CubieCube c) {
+        byte[] cp = new byte[4];
+        byte[] ep = new byte[4];
+        int twist = 0;
+        int flip = 0;
+        for (int i = 0; i < 4; i++) {
+            cp[i] = (byte) (c.ca[i] & 7);
+            ep[i] = (byte) (c.ea[i] >> 1);
+            if (i < 3) {
+                twist = twist * 3 + (c.ca[i] >> 3);
+                flip = flip * 2 + (c.ea[i] & 1);
+            }
+        }
+        return ((Util.getNPerm(cp, 4, false) * 27 + twist) * 24 + Util.getNPerm(ep, 4, false)) * 8 + flip;
+    }
+
+    static CubieCube fromKey(int key) {
+        CubieCube c = new CubieCube();
+        int flip = key & 7;
+        key >>= 3;
+        int eperm = key % 24;
+        key /= 24;
+        int twist = key % 27;
+        int cperm = key / 27;
+        byte[] cp = new byte[4];
+        byte[] ep = new byte[4];
+        Util.setNPerm(cp, cperm, 4, false);
+        Util.setNPerm(ep, eperm, 4, false);
+        int twistSum = 0;
+        int flipSum = 0;
+        for (int i = 2; i >= 0; i--) {
+            int co = twist % 3;
+            int eo = flip & 1;
+            twist /= 3;
+            flip >>= 1;
+            twistSum += co;
+            flipSum += eo;
+            c.ca[i] = (byte) (cp[i] | co << 3);
+            c.ea[i] = (byte) (ep[i] << 1 | eo);
+        }
+        c.ca[3] = (byte) (cp[3] | (3 - twistSum % 3) % 3 << 3);
+        c.ea[3] = (byte) (ep[3] << 1 | flipSum & 1);
+        return c;
+    }
+
+    /**
+     * @return keys of the smallest case of each AUF class of solvable last layer cases.
+     */
+    static int[] representatives() {
+        boolean[] done = new boolean[N_CASES];
+        int[] ret = new int[N_CASES];
+        int cnt = 0;
+        CubieCube u = CubieCube.moveCube[Util.Ux1];
+        CubieCube left = new CubieCube();
+        CubieCube right = new CubieCube();
+        CubieCube tmp = new CubieCube();
+        for (int key = 0; key < N_CASES; key++) {
+            if (done[key] || Util.getNParity(key / 8 % 24, 4) != Util.getNParity(key / 8 / 24 / 27, 4)) {
+                continue;
+            }
+            ret[cnt++] = key;
+            left.copy(fromKey(key));
+            for (int pre = 0; pre < 4; pre++) {
+                right.copy(left);
+                for (int post = 0; post < 4; post++) {
+                    done[getKey(right)] = true;
+                    CubieCube.CornMult(right, u, tmp);
+                    CubieCube.EdgeMult(right, u, tmp);
+                    right.copy(tmp);
+                }
+                CubieCube.CornMult(u, left, tmp);
+                CubieCube.EdgeMult(u, left, tmp);
+                left.copy(tmp);
+            }
+        }
+        int[] keys = new int[cnt];
+        System.arraycopy(ret, 0, keys, 0, cnt);
+        return keys;
+    }
+
+    private static int indexOfMove(String move) {
+        for (int i = 0; i < Util.move2str.length; i++) {
+            if (Util.move2str[i].trim().equals(move)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,76 @@
+package com.mycompany.myrubikscube.cs.min2phase;
+
+/**
+ * Cubie level state of a cube (corner and edge permutation and orientation) kept up to date move
+ * by move with the move tables of the search, so that a solve can start from it directly, see
+ * {@link Search#solution(LiveCubie, int, long, long, int)}, without building and checking a
+ * facelet string.<br>
+ * Moves are numbered as in {@link Tools#fromScramble(int[])}: U U2 U' R R2 R' F F2 F' D D2 D' L L2 L'
+ * B B2 B', faces being named after their centers.<br>
+ * Not thread safe.
+ */
+public class LiveCubie {
+
+    CubieCube cc = new CubieCube();
+    private CubieCube tmp = new CubieCube();
+
+    /**
+     * A solved cube.
+     */
+    public LiveCubie() {
+    }
+
+    public LiveCubie(CubeKey key) {
+        set(key);
+    }
+
+    public void reset() {
+        cc.copy(new CubieCube());
+    }
+
+    /**
+     * Applies one move, in constant time.
+     */
+    public void move(int move) {
+        CubieCube.CornMult(cc, CubieCube.moveCube[move], tmp);
+        CubieCube.EdgeMult(cc, CubieCube.moveCube[move], tmp);
+        CubieCube t = cc;
+        cc = tmp;
+        tmp = t;
+    }
+
+    /**
+     * @param facelets
+     *      the cube definition string, see {@link Search#solution(String, int, long, long, int)}
+     *
+     * @return 0 if the state was set, otherwise the error code of
+     *      {@link Search#solution(String, int, long, long, int)}, negated.
+     */
+    public int set(String facelets) {
+        Search search = new Search();
+        int check = search.verify(facelets);
+        if (check == 0) {
+            cc.copy(search.cc);
+        }
+        return check;
+    }
+
+    public void set(CubeKey key) {
+        CubeKey.decode(key.hi, key.lo, cc);
+    }
+
+    public CubeKey key() {
+        return new CubeKey(CubeKey.hi(cc), CubeKey.lo(cc));
+    }
+
+    public boolean isSolved() {
+        return CubeKey.hi(cc) == 0 && CubeKey.lo(cc) == 0;
+    }
+
+    /**
+     * @return the cube definition string of the state.
+     */
+    public String toFacelets() {
+        return Util.toFaceCube(cc);
+    }
+}
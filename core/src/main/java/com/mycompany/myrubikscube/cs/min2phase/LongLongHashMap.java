@@ -0,0 +1,120 @@
+package com.mycompany.myrubikscube.cs.min2phase;
+
+import java.util.Arrays;
+
+/**
+ * Hash map from (hi, lo) pairs of longs, e.g. {@link CubeKey}s, to long values, without boxing.<br>
+ * Same layout as {@link LongLongHashSet} with a parallel array of values, 24 bytes per slot.<br>
+ * Not thread safe.
+ */
+public class LongLongHashMap extends LongLongHashSet {
+
+    public interface Visitor {
+        void visit(long hi, long lo, long value);
+    }
+
+    private long[] values;
+    private long[] oldValues;
+    private long zeroValue;
+
+    public LongLongHashMap() {
+        super();
+    }
+
+    /**
+     * @param expectedSize
+     *      the number of entries which can be added without resizing.
+     */
+    public LongLongHashMap(int expectedSize) {
+        super(expectedSize);
+    }
+
+    /**
+     * @return the value of the pair, or defaultValue if it is not in the map.
+     */
+    public long get(long hi, long lo, long defaultValue) {
+        if (hi == 0 && lo == 0) {
+            return hasZero ? zeroValue : defaultValue;
+        }
+        int i = find(hi, lo);
+        return i >= 0 ? values[i] : defaultValue;
+    }
+
+    public boolean containsKey(long hi, long lo) {
+        return contains(hi, lo);
+    }
+
+    /**
+     * @return whether the pair was not in the map.
+     */
+    public boolean put(long hi, long lo, long value) {
+        if (hi == 0 && lo == 0) {
+            zeroValue = value;
+            return add(hi, lo);
+        }
+        int i = find(hi, lo);
+        if (i >= 0) {
+            values[i] = value;
+            return false;
+        }
+        values[~i] = value;
+        insert(~i, hi, lo);
+        return true;
+    }
+
+    /**
+     * Adds delta to the value of the pair, which is 0 if it is not in the map.
+     *
+     * @return the new value.
+     */
+    public long addTo(long hi, long lo, long delta) {
+        long value = get(hi, lo, 0) + delta;
+        put(hi, lo, value);
+        return value;
+    }
+
+    /**
+     * Calls the visitor for each entry, in no particular order. The map must not be modified meanwhile.
+     */
+    public void forEach(Visitor visitor) {
+        if (hasZero) {
+            visitor.visit(0, 0, zeroValue);
+        }
+        for (int i = 0; i <= mask; i++) {
+            long h = keys[i << 1];
+            long l = keys[i << 1 | 1];
+            if (h != 0 || l != 0) {
+                visitor.visit(h, l, values[i]);
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        Arrays.fill(values, 0);
+    }
+
+    @Override
+    void allocate(int cap) {
+        super.allocate(cap);
+        oldValues = values;
+        values = new long[cap];
+    }
+
+    @Override
+    void resize(int cap) {
+        super.resize(cap);
+        oldValues = null;
+    }
+
+    @Override
+    void moveValue(int from, int to) {
+        values[to] = values[from];
+    }
+
+    @Override
+    void rehashValue(int oldSlot, int newSlot) {
+        values[newSlot] = oldValues[oldSlot];
+    }
+}
@@ -0,0 +1,211 @@
+package com.mycompany.myrubikscube.cs.min2phase;
+
+import java.util.Arrays;
+
+/**
+ * Hash set of (hi, lo) pairs of longs, e.g. {@link CubeKey}s, without boxing.<br>
+ * Open addressing with linear probing in one long array of interleaved pairs, so an entry costs
+ * 16 bytes divided by the load factor (at most 0.75) instead of about 150 bytes in a
+ * HashSet&lt;String&gt; of facelets. (0, 0) marks an empty slot and is kept apart. Removal shifts
+ * the following entries back, so there are no tombstones.<br>
+ * Not thread safe.
+ */
+public class LongLongHashSet {
+
+    static final int MAX_CAPACITY = 1 << 29;
+
+    public interface Visitor {
+        void visit(long hi, long lo);
+    }
+
+    long[] keys;
+    int mask;
+    int size = 0;
+    boolean hasZero = false;
+    private int resizeAt;
+
+    public LongLongHashSet() {
+        this(16);
+    }
+
+    /**
+     * @param expectedSize
+     *      the number of entries which can be added without resizing.
+     */
+    public LongLongHashSet(int expectedSize) {
+        int cap = 16;
+        while (cap < MAX_CAPACITY && cap * 3L / 4 < expectedSize) {
+            cap <<= 1;
+        }
+        allocate(cap);
+    }
+
+    static long mix(long hi, long lo) {
+        long h = hi * 0x9e3779b97f4a7c15L ^ lo;
+        h = (h ^ h >>> 33) * 0xff51afd7ed558ccdL;
+        h = (h ^ h >>> 33) * 0xc4ceb9fe1a85ec53L;
+        return h ^ h >>> 33;
+    }
+
+    void allocate(int cap) {
+        keys = new long[cap * 2];
+        mask = cap - 1;
+        resizeAt = cap == MAX_CAPACITY ? cap - 1 : cap / 4 * 3;
+    }
+
+    /**
+     * @return the slot of the pair if present, otherwise ~(the empty slot where it would be added).
+     */
+    final int find(long hi, long lo) {
+        int i = (int) mix(hi, lo) & mask;
+        while (true) {
+            long h = keys[i << 1];
+            long l = keys[i << 1 | 1];
+            if (h == hi && l == lo) {
+                return i;
+            }
+            if (h == 0 && l == 0) {
+                return ~i;
+            }
+            i = i + 1 & mask;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(long hi, long lo) {
+        if (hi == 0 && lo == 0) {
+            return hasZero;
+        }
+        return find(hi, lo) >= 0;
+    }
+
+    /**
+     * @return whether the pair was not in the set.
+     */
+    public boolean add(long hi, long lo) {
+        if (hi == 0 && lo == 0) {
+            if (hasZero) {
+                return false;
+            }
+            hasZero = true;
+            size++;
+            return true;
+        }
+        int i = find(hi, lo);
+        if (i >= 0) {
+            return false;
+        }
+        insert(~i, hi, lo);
+        return true;
+    }
+
+    /**
+     * @return whether the pair was in the set.
+     */
+    public boolean remove(long hi, long lo) {
+        if (hi == 0 && lo == 0) {
+            if (!hasZero) {
+                return false;
+            }
+            hasZero = false;
+            size--;
+            return true;
+        }
+        int i = find(hi, lo);
+        if (i < 0) {
+            return false;
+        }
+        removeAt(i);
+        return true;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        hasZero = false;
+        size = 0;
+    }
+
+    /**
+     * Calls the visitor for each pair, in no particular order. The set must not be modified meanwhile.
+     */
+    public void forEach(Visitor visitor) {
+        if (hasZero) {
+            visitor.visit(0, 0);
+        }
+        for (int i = 0; i <= mask; i++) {
+            long h = keys[i << 1];
+            long l = keys[i << 1 | 1];
+            if (h != 0 || l != 0) {
+                visitor.visit(h, l);
+            }
+        }
+    }
+
+    final void insert(int i, long hi, long lo) {
+        // at MAX_CAPACITY, keep one slot empty so that find() ends
+        if (mask + 1 == MAX_CAPACITY && size - (hasZero ? 1 : 0) >= resizeAt) {
+            throw new IllegalStateException("LongLongHashSet is full");
+        }
+        keys[i << 1] = hi;
+        keys[i << 1 | 1] = lo;
+        size++;
+        if (size - (hasZero ? 1 : 0) > resizeAt) {
+            resize((mask + 1) << 1);
+        }
+    }
+
+    /**
+     * Empties slot i and moves back the entries of its probe run which would not be found any more.
+     */
+    final void removeAt(int i) {
+        size--;
+        int j = i;
+        while (true) {
+            j = j + 1 & mask;
+            long h = keys[j << 1];
+            long l = keys[j << 1 | 1];
+            if (h == 0 && l == 0) {
+                break;
+            }
+            int home = (int) mix(h, l) & mask;
+            // move j to i unless its home slot lies cyclically in (i, j]
+            if (i <= j ? home <= i || home > j : home <= i && home > j) {
+                keys[i << 1] = h;
+                keys[i << 1 | 1] = l;
+                moveValue(j, i);
+                i = j;
+            }
+        }
+        keys[i << 1] = 0;
+        keys[i << 1 | 1] = 0;
+    }
+
+    void resize(int cap) {
+        long[] old = keys;
+        allocate(cap);
+        for (int i = 0; i < old.length; i += 2) {
+            if (old[i] != 0 || old[i + 1] != 0) {
+                int j = ~find(old[i], old[i + 1]);
+                keys[j << 1] = old[i];
+                keys[j << 1 | 1] = old[i + 1];
+                rehashValue(i >> 1, j);
+            }
+        }
+    }
+
+    /**
+     * Hooks for {@link LongLongHashMap}, which keeps a value per slot.
+     */
+    void moveValue(int from, int to) {
+    }
+
+    void rehashValue(int oldSlot, int newSlot) {
+    }
+}
@@ -0,0 +1,198 @@
+package com.mycompany.myrubikscube.cs.min2phase;
+
+/**
+ * Lower bounds of the distance of a cube to the solved state, read from the pruning tables.<br>
+ * Rating a scramble by difficulty usually only needs "at least N moves", which is much cheaper
+ * than a full solution. The bounds never build a solution string.<br>
+ * An instance is not thread safe. Batch methods use one instance per thread.
+ */
+public class LowerBound extends Search {
+
+    private static final ThreadLocal<LowerBound> SCRATCH = new ThreadLocal<LowerBound>() {
+        @Override
+        protected LowerBound initialValue() {
+            return new LowerBound();
+        }
+    };
+
+    private long nodes;
+    private long nodeMax;
+    private boolean exact;
+
+    public LowerBound() {
+        CoordCube.init(true);
+    }
+
+    /**
+     * Load a cube for the bound functions.
+     *
+     * @param facelets
+     *      the cube definition string, see {@link Search#solution(String, int, long, long, int)}
+     *
+     * @return 0 if the cube is solvable, otherwise the error code of {@link Tools#verify(String)}
+     */
+    public int setState(String facelets) {
+        int check = verify(facelets);
+        if (check != 0) {
+            return check;
+        }
+        initSearch();
+        return 0;
+    }
+
+    /**
+     * @return max of the phase 1 pruning value over the 6 URF conjugates of the loaded cube.
+     *      Each conjugate has the same distance, so the cube is at least this many moves away.
+     */
+    public int phase1Bound() {
+        int prun = 0;
+        for (int i = 0; i < 6; i++) {
+            urfCoordCube[i].calcPruning(false);
+            prun = Math.max(prun, urfCoordCube[i].prun);
+        }
+        return prun;
+    }
+
+    /**
+     * @return the phase 2 pruning value of the loaded cube, i.e. a lower bound of the number of
+     *      moves in &lt;U,D,R2,F2,L2,B2&gt; (or the same subgroup of the RL/FB axis) to solve it.
+     *      The minimum is taken over the axes whose subgroup contains the cube.
+     *      -1 if the cube is not in the subgroup of any axis.
+     */
+    public int phase2Bound() {
+        int ret = -1;
+        for (int i = 0; i < 3; i++) {
+            CubieCube c = urfCubieCube[i];
+            if (c.getTwist() != 0 || c.getFlip() != 0 || c.getUDSlice() != 0) {
+                continue;
+            }
+            int prun = phase2Prun(c);
+            ret = ret == -1 ? prun : Math.min(ret, prun);
+        }
+        return ret;
+    }
+
+    /**
+     * Bounded IDA* on the loaded cube, which tries to prove that it is at least minLength moves away.
+     *
+     * @param minLength
+     *      the length to prove.
+     *
+     * @param nodeMax
+     *      the maximum number of phase 1 nodes to expand.
+     *
+     * @return a lower bound of the distance:<br>
+     *      minLength: the cube is proven to be at least minLength moves away.<br>
+     *      less than minLength and {@link #isExact()}: the optimal length, found within the budget.<br>
+     *      less than minLength otherwise: the node budget ran out, all shorter lengths were excluded.
+     */
+    public int atLeast(int minLength, long nodeMax) {
+        this.nodes = 0;
+        this.nodeMax = nodeMax;
+        this.exact = false;
+        this.solLen = minLength;
+        this.probe = 0;
+        this.probeMax = Long.MAX_VALUE;
+        this.probeMin = 0;
+        this.verbose = OPTIMAL_SOLUTION;
+        this.solution = null;
+        this.isRec = false;
+
+        int maxprun1 = 0;
+        int maxprun2 = 0;
+        for (int i = 0; i < 6; i++) {
+            urfCoordCube[i].calcPruning(false);
+            if (i < 3) {
+                maxprun1 = Math.max(maxprun1, urfCoordCube[i].prun);
+            } else {
+                maxprun2 = Math.max(maxprun2, urfCoordCube[i].prun);
+            }
+        }
+        urfIdx = maxprun2 > maxprun1 ? 3 : 0;
+        phase1Cubie[0] = urfCubieCube[urfIdx];
+        CoordCube ud = urfCoordCube[0 + urfIdx];
+        CoordCube rl = urfCoordCube[1 + urfIdx];
+        CoordCube fb = urfCoordCube[2 + urfIdx];
+        for (length1 = 0; length1 < minLength; length1++) {
+            if (ud.prun <= length1 && rl.prun <= length1 && fb.prun <= length1
+                    && phase1opt(ud, rl, fb, selfSym, length1, -1) == 0) {
+                if (solution != null) {
+                    exact = true;
+                    return solution.length;
+                }
+                return length1;
+            }
+        }
+        return minLength;
+    }
+
+    /**
+     * @return whether the last {@link #atLeast(int, long)} returned the optimal length.
+     */
+    public boolean isExact() {
+        return exact;
+    }
+
+    /**
+     * @return the number of phase 1 nodes expanded by the last {@link #atLeast(int, long)}.
+     */
+    public long numberOfNodes() {
+        return nodes;
+    }
+
+    @Override
+    protected int phase1opt(CoordCube ud, CoordCube rl, CoordCube fb, long ssym, int maxl, int lm) {
+        if (++nodes > nodeMax) {
+            return 0;
+        }
+        return super.phase1opt(ud, rl, fb, ssym, maxl, lm);
+    }
+
+    /**
+     * Phase 1 bounds of a batch of cubes.
+     *
+     * @return the bound for each cube, or the negative error code of {@link Tools#verify(String)}.
+     */
+    public static int[] phase1Bound(final String[] facelets, boolean parallel) {
+        final int[] ret = new int[facelets.length];
+        Util.RangeTask task = new Util.RangeTask() {
+            public void run(int from, int to) {
+                LowerBound lb = SCRATCH.get();
+                for (int i = from; i < to; i++) {
+                    int check = lb.setState(facelets[i]);
+                    ret[i] = check != 0 ? check : lb.phase1Bound();
+                }
+            }
+        };
+        if (parallel) {
+            Util.parallelRange(facelets.length, task);
+        } else {
+            task.run(0, facelets.length);
+        }
+        return ret;
+    }
+
+    /**
+     * {@link #atLeast(int, long)} for a batch of cubes.
+     *
+     * @return the bound for each cube, or the negative error code of {@link Tools#verify(String)}.
+     */
+    public static int[] atLeast(final String[] facelets, final int minLength, final long nodeMax, boolean parallel) {
+        final int[] ret = new int[facelets.length];
+        Util.RangeTask task = new Util.RangeTask() {
+            public void run(int from, int to) {
+                LowerBound lb = SCRATCH.get();
+                for (int i = from; i < to; i++) {
+                    int check = lb.setState(facelets[i]);
+                    ret[i] = check != 0 ? check : lb.atLeast(minLength, nodeMax);
+                }
+            }
+        };
+        if (parallel) {
+            Util.parallelRange(facelets.length, task);
+        } else {
+            task.run(0, facelets.length);
+        }
+        return ret;
+    }
+}
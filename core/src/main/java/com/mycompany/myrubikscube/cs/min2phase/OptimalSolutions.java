@@ -0,0 +1,352 @@
+package com.mycompany.myrubikscube.cs.min2phase;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Enumerates all optimal solutions of a cube.<br>
+ * IDA* over the full move set, pruned by the phase 1 tables of the three axes like
+ * {@link Search#OPTIMAL_SOLUTION}, but the last depth is searched to the end. Moves of the same face
+ * are never consecutive and moves of opposite faces only appear in U D, R L and F B order, so each
+ * solution is returned once. Each depth is searched in parallel over the 18 first moves.<br>
+ * Solutions are produced in background threads into a bounded queue, so the enumeration only runs
+ * ahead of the consumer by {@link #QUEUE_SIZE} solutions. {@link #close()} takes no lock, so it stops a
+ * consumer waiting in {@link #hasNext()} within {@link #POLL_MILLIS}.
+ */
+public class OptimalSolutions implements Iterator<String> {
+
+    public static final int QUEUE_SIZE = 1024;
+    public static final long POLL_MILLIS = 100;
+
+    private static final String END = new String();
+
+    private String facelets;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int maxLength = 20;
+
+    private volatile BlockingQueue<String> queue;
+    private volatile Thread producer;
+    private volatile boolean closed = false;
+    private volatile Throwable failure = null;
+    private String nextSolution = null;
+    private boolean finished = false;
+
+    private volatile int depth = -1;
+    private volatile int optimalLength = -1;
+    private final AtomicInteger rootsDone = new AtomicInteger();
+    private final AtomicLong nodes = new AtomicLong();
+    private final AtomicLong found = new AtomicLong();
+
+    public OptimalSolutions() {
+        CoordCube.init(true);
+    }
+
+    /**
+     * Load a cube.
+     *
+     * @param facelets
+     *      the cube definition string, see {@link Search#solution(String, int, long, long, int)}
+     *
+     * @return 0 if the cube is solvable, otherwise the error code of {@link Tools#verify(String)}
+     */
+    public int setState(String facelets) {
+        checkNotStarted();
+        int check = new Search().verify(facelets);
+        if (check == 0) {
+            this.facelets = facelets;
+        }
+        return check;
+    }
+
+    /**
+     * Number of worker threads, the number of available processors by default.
+     */
+    public void setThreads(int threads) {
+        checkNotStarted();
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Depth at which the enumeration gives up, 20 by default.
+     */
+    public void setMaxLength(int maxLength) {
+        checkNotStarted();
+        this.maxLength = maxLength;
+    }
+
+    private void checkNotStarted() {
+        if (producer != null) {
+            throw new IllegalStateException("OptimalSolutions already started");
+        }
+    }
+
+    /**
+     * Blocks until the next solution is found, the enumeration is complete or {@link #close()} is called.
+     *
+     * @throws IllegalStateException if the enumeration failed.
+     */
+    public synchronized boolean hasNext() {
+        if (nextSolution != null) {
+            return true;
+        }
+        if (finished || closed) {
+            return false;
+        }
+        if (facelets == null) {
+            throw new IllegalStateException("No cube loaded");
+        }
+        if (producer == null) {
+            start();
+        }
+        String sol;
+        try {
+            while ((sol = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+                if (closed) {
+                    return false;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+        if (sol == END) {
+            finished = true;
+            if (failure != null) {
+                throw new IllegalStateException("Optimal solution enumeration failed", failure);
+            }
+            return false;
+        }
+        nextSolution = sol;
+        return true;
+    }
+
+    /**
+     * @return the next optimal solution, in the format of {@link Search#solution(String, int, long, long, int)}.
+     */
+    public synchronized String next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        String ret = nextSolution;
+        nextSolution = null;
+        return ret;
+    }
+
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Stops the worker threads.
+     */
+    public void close() {
+        closed = true;
+        Thread t = producer;
+        if (t != null) {
+            t.interrupt();
+        }
+    }
+
+    /**
+     * @return the depth being searched, -1 before the start.
+     */
+    public int searchDepth() {
+        return depth;
+    }
+
+    /**
+     * @return the optimal length once the first solution is found or the search is complete,
+     *      -1 before, or if no solution is found within the max length.
+     */
+    public int optimalLength() {
+        return optimalLength;
+    }
+
+    /**
+     * @return the part of the first moves searched at the current depth, from 0 to 1.
+     */
+    public double progress() {
+        return rootsDone.get() / 18.0;
+    }
+
+    /**
+     * @return number of nodes expanded so far, summed over all workers.
+     */
+    public long numberOfNodes() {
+        return nodes.get();
+    }
+
+    /**
+     * @return number of solutions found so far, including the ones not returned yet.
+     */
+    public long numberOfSolutions() {
+        return found.get();
+    }
+
+    private void start() {
+        queue = new ArrayBlockingQueue<String>(QUEUE_SIZE);
+        producer = new Thread(new Runnable() {
+            public void run() {
+                produce();
+            }
+        }, "min2phase-optimal");
+        producer.setDaemon(true);
+        producer.start();
+    }
+
+    private void produce() {
+        try {
+            Worker root = new Worker();
+            int minDepth = root.initSearch(facelets);
+            if (minDepth == 0 && root.isSolved(0)) {
+                optimalLength = 0;
+                found.incrementAndGet();
+                put("");
+                return;
+            }
+            for (int d = Math.max(1, minDepth); d <= maxLength && !closed; d++) {
+                final int maxl = d;
+                depth = d;
+                rootsDone.set(0);
+                Util.parallelRange(18, threads, new Util.RangeTask() {
+                    public void run(int from, int to) {
+                        Worker w = new Worker();
+                        w.initSearch(facelets);
+                        for (int m = from; m < to && !closed; m++) {
+                            w.searchRoot(m, maxl);
+                            rootsDone.incrementAndGet();
+                        }
+                    }
+                });
+                if (found.get() != 0) {
+                    optimalLength = d;
+                    return;
+                }
+            }
+        } catch (Throwable e) {
+            // reported by hasNext() after the end
+            if (!closed) {
+                failure = e;
+            }
+        } finally {
+            put(END);
+        }
+    }
+
+    private boolean put(String sol) {
+        try {
+            while (!closed) {
+                if (queue.offer(sol, 100, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    private class Worker extends Search {
+        private CubieCube c = new CubieCube();
+        private CubieCube d = new CubieCube();
+        private long count = 0;
+
+        int initSearch(String facelets) {
+            verify(facelets);
+            initSearch();
+            int prun = 0;
+            for (int i = 0; i < 3; i++) {
+                urfCoordCube[i].calcPruning(false);
+                prun = Math.max(prun, urfCoordCube[i].prun);
+            }
+            return prun;
+        }
+
+        void searchRoot(int m, int maxl) {
+            count = 0;
+            CoordCube ud = urfCoordCube[0];
+            CoordCube rl = urfCoordCube[1];
+            CoordCube fb = urfCoordCube[2];
+            length1 = maxl;
+            doMove(ud, rl, fb, m, maxl, -1);
+            nodes.addAndGet(count);
+        }
+
+        private void doMove(CoordCube ud, CoordCube rl, CoordCube fb, int m, int maxl, int lm) {
+            int prun_ud = Math.max(nodeUD[maxl].doMovePrun(ud, m, false),
+                                   USE_CONJ_PRUN ? nodeUD[maxl].doMovePrunConj(ud, m) : 0);
+            if (prun_ud >= maxl) {
+                return;
+            }
+            int mrl = CubieCube.urfMove[2][m];
+            int prun_rl = Math.max(nodeRL[maxl].doMovePrun(rl, mrl, false),
+                                   USE_CONJ_PRUN ? nodeRL[maxl].doMovePrunConj(rl, mrl) : 0);
+            if (prun_rl >= maxl) {
+                return;
+            }
+            int mfb = CubieCube.urfMove[2][mrl];
+            int prun_fb = Math.max(nodeFB[maxl].doMovePrun(fb, mfb, false),
+                                   USE_CONJ_PRUN ? nodeFB[maxl].doMovePrunConj(fb, mfb) : 0);
+            if (prun_ud == prun_rl && prun_rl == prun_fb && prun_fb != 0) {
+                prun_fb++;
+            }
+            if (prun_fb >= maxl) {
+                return;
+            }
+            move[length1 - maxl] = m;
+            search(nodeUD[maxl], nodeRL[maxl], nodeFB[maxl], maxl - 1, m / 3 * 3);
+        }
+
+        private void search(CoordCube ud, CoordCube rl, CoordCube fb, int maxl, int lm) {
+            count++;
+            if (closed) {
+                return;
+            }
+            if (maxl == 0) {
+                if (ud.prun == 0 && rl.prun == 0 && fb.prun == 0 && isSolved(length1)) {
+                    found.incrementAndGet();
+                    optimalLength = length1;
+                    StringBuffer sb = new StringBuffer();
+                    for (int i = 0; i < length1; i++) {
+                        sb.append(Util.move2str[move[i]]).append(' ');
+                    }
+                    put(sb.toString());
+                }
+                return;
+            }
+            for (int axis = 0; axis < 18; axis += 3) {
+                if (axis == lm || axis == lm - 9) {
+                    continue;
+                }
+                for (int power = 0; power < 3; power++) {
+                    doMove(ud, rl, fb, axis + power, maxl, lm);
+                }
+            }
+        }
+
+        boolean isSolved(int len) {
+            c.copy(cc);
+            for (int i = 0; i < len; i++) {
+                CubieCube.CornMult(c, CubieCube.moveCube[move[i]], d);
+                CubieCube.EdgeMult(c, CubieCube.moveCube[move[i]], d);
+                c.copy(d);
+            }
+            for (int i = 0; i < 8; i++) {
+                if (c.ca[i] != i) {
+                    return false;
+                }
+            }
+            for (int i = 0; i < 12; i++) {
+                if (c.ea[i] != i << 1) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,382 @@
+package com.mycompany.myrubikscube.cs.min2phase;
+
+import java.util.HashMap;
+
+/**
+ * Two-phase search with a restricted move set, e.g. for robots which cannot turn some faces.<br>
+ * Phase 1 brings the cube to &lt;U,D,R2,F2,L2,B2&gt; with the allowed moves, phase 2 solves it with the
+ * allowed moves of that subgroup. Forbidden moves are never expanded.<br>
+ * The pruning tables of {@link Search} assume all 18 moves, so each move set gets its own raw (not
+ * symmetry reduced) pruning tables, about 3.3MB, built on first use and cached. Move sets which are
+ * conjugate by one of the 16 symmetries preserving the UD axis share tables, e.g. "no B" and "no L".<br>
+ * Solutions are usually longer than the unrestricted ones.
+ */
+public class RestrictedSearch {
+
+    /**
+     * Bit m of a move mask allows move m, in the order U U2 U' R R2 R' F F2 F' D D2 D' L L2 L' B B2 B'.
+     */
+    public static final int ALL_MOVES = 0x3ffff;
+
+    static final int MAX_DEPTH2 = 18;
+
+    static char[][] TwistMoveRaw = null;
+    static char[][] FlipMoveRaw = null;
+    static char[][] CPermMoveRaw = null;
+    static char[][] EPermMoveRaw = null;
+
+    private static final HashMap<Integer, Tables> tablesCache = new HashMap<Integer, Tables>();
+
+    /**
+     * Pruning tables of one move set.
+     */
+    static class Tables {
+        int[] moves1;
+        int[] moves2;
+        int[] SliceTwistPrun;
+        int[] SliceFlipPrun;
+        int[] TwistFlipPrun;
+        int[] MCPermPrun;
+        int[] MEPermPrun;
+
+        Tables(int mask) {
+            int n1 = 0;
+            int n2 = 0;
+            int[] m1 = new int[18];
+            int[] m2 = new int[10];
+            for (int m = 0; m < 18; m++) {
+                if ((mask >> m & 1) != 0) {
+                    m1[n1++] = m;
+                }
+            }
+            for (int m = 0; m < 10; m++) {
+                if ((mask >> Util.ud2std[m] & 1) != 0) {
+                    m2[n2++] = m;
+                }
+            }
+            moves1 = new int[n1];
+            moves2 = new int[n2];
+            System.arraycopy(m1, 0, moves1, 0, n1);
+            System.arraycopy(m2, 0, moves2, 0, n2);
+
+            SliceTwistPrun = initRawPrun(CoordCube.UDSliceMove, TwistMoveRaw, moves1);
+            SliceFlipPrun = initRawPrun(CoordCube.UDSliceMove, FlipMoveRaw, moves1);
+            TwistFlipPrun = initRawPrun(TwistMoveRaw, FlipMoveRaw, moves1);
+            MCPermPrun = initRawPrun(CPermMoveRaw, CoordCube.MPermMove, moves2);
+            MEPermPrun = initRawPrun(EPermMoveRaw, CoordCube.MPermMove, moves2);
+        }
+    }
+
+    private final int moveMask;
+    private final int sym;
+    private final Tables tables;
+
+    private Search checker = new Search();
+    private CubieCube[] phase1Cubie = new CubieCube[31];
+    private int[] move = new int[31];
+    private int length1;
+    private int depth2;
+    private int maxDepth;
+    private long probe;
+    private long probeMax;
+    private int verbose;
+    private Util.Solution solution;
+
+    /**
+     * @param moveMask
+     *      allowed moves, see {@link #ALL_MOVES} and {@link #moveMask(String)}.
+     */
+    public RestrictedSearch(int moveMask) {
+        CoordCube.init(false);
+        this.moveMask = moveMask & ALL_MOVES;
+        // pick the conjugate move set with the smallest mask, so that conjugate move sets share tables
+        int bestSym = 0;
+        int bestMask = Integer.MAX_VALUE;
+        for (int s = 0; s < 16; s++) {
+            int conjMask = 0;
+            for (int m = 0; m < 18; m++) {
+                if ((this.moveMask >> CubieCube.SymMove[s][m] & 1) != 0) {
+                    conjMask |= 1 << m;
+                }
+            }
+            if (conjMask < bestMask) {
+                bestMask = conjMask;
+                bestSym = s;
+            }
+        }
+        this.sym = bestSym;
+        this.tables = getTables(bestMask);
+        for (int i = 0; i < 31; i++) {
+            phase1Cubie[i] = new CubieCube();
+        }
+    }
+
+    /**
+     * Parses a move set, e.g. "U R F D L" for all moves but B, or "U D R2 F2 L2 B2" for the phase 2 moves.
+     * A face without a suffix allows all of its three moves.
+     */
+    public static int moveMask(String moves) {
+        int mask = 0;
+        for (int i = 0; i < moves.length(); i++) {
+            int face = "URFDLB".indexOf(moves.charAt(i));
+            if (face == -1) {
+                continue;
+            }
+            char suffix = i + 1 < moves.length() ? moves.charAt(i + 1) : ' ';
+            if (suffix == '2') {
+                mask |= 2 << face * 3;
+            } else if (suffix == '\'') {
+                mask |= 4 << face * 3;
+            } else {
+                mask |= 7 << face * 3;
+            }
+        }
+        return mask;
+    }
+
+    public int getMoveMask() {
+        return moveMask;
+    }
+
+    static synchronized Tables getTables(int mask) {
+        Tables t = tablesCache.get(mask);
+        if (t == null) {
+            initRawMove();
+            t = new Tables(mask);
+            tablesCache.put(mask, t);
+        }
+        return t;
+    }
+
+    static void initRawMove() {
+        if (TwistMoveRaw != null) {
+            return;
+        }
+        CubieCube c = new CubieCube();
+        CubieCube d = new CubieCube();
+        char[][] twistMove = new char[CoordCube.N_TWIST][18];
+        for (int i = 0; i < CoordCube.N_TWIST; i++) {
+            c.setTwist(i);
+            for (int m = 0; m < 18; m++) {
+                CubieCube.CornMult(c, CubieCube.moveCube[m], d);
+                twistMove[i][m] = (char) d.getTwist();
+            }
+        }
+        char[][] flipMove = new char[CoordCube.N_FLIP][18];
+        for (int i = 0; i < CoordCube.N_FLIP; i++) {
+            c.setFlip(i);
+            for (int m = 0; m < 18; m++) {
+                CubieCube.EdgeMult(c, CubieCube.moveCube[m], d);
+                flipMove[i][m] = (char) d.getFlip();
+            }
+        }
+        char[][] cpermMove = new char[CoordCube.N_PERM][10];
+        char[][] epermMove = new char[CoordCube.N_PERM][10];
+        for (int i = 0; i < CoordCube.N_PERM; i++) {
+            c.setCPerm(i);
+            c.setEPerm(i);
+            for (int m = 0; m < 10; m++) {
+                CubieCube.CornMult(c, CubieCube.moveCube[Util.ud2std[m]], d);
+                CubieCube.EdgeMult(c, CubieCube.moveCube[Util.ud2std[m]], d);
+                cpermMove[i][m] = (char) d.getCPerm();
+                epermMove[i][m] = (char) d.getEPerm();
+            }
+        }
+        FlipMoveRaw = flipMove;
+        CPermMoveRaw = cpermMove;
+        EPermMoveRaw = epermMove;
+        TwistMoveRaw = twistMove;
+    }
+
+    /**
+     * Breadth-first search of the distance of coordinate pairs (i, j) with index i * N_j + j.
+     * 0xf means at least 15 moves, or unreachable.
+     */
+    static int[] initRawPrun(char[][] move1, char[][] move2, int[] moves) {
+        int n2 = move2.length;
+        int size = move1.length * n2;
+        int[] prun = new int[(size + 7) >> 3];
+        for (int i = 0; i < prun.length; i++) {
+            prun[i] = -1;
+        }
+        CoordCube.setPruning(prun, 0, 0xf);
+        int done = 1;
+        for (int depth = 0; depth < 14 && done != 0; depth++) {
+            done = 0;
+            for (int i = 0; i < size; i++) {
+                if (CoordCube.getPruning(prun, i) != depth) {
+                    continue;
+                }
+                char[] mv1 = move1[i / n2];
+                char[] mv2 = move2[i % n2];
+                for (int m : moves) {
+                    int idx = mv1[m] * n2 + mv2[m];
+                    if (CoordCube.getPruning(prun, idx) == 0xf) {
+                        CoordCube.setPruning(prun, idx, (depth + 1) ^ 0xf);
+                        done++;
+                    }
+                }
+            }
+        }
+        return prun;
+    }
+
+    /**
+     * Computes the solver string for a given cube with the allowed moves only.
+     *
+     * @param facelets
+     *      the cube definition string, see {@link Search#solution(String, int, long, long, int)}
+     *
+     * @param maxDepth
+     *      the maximal allowed maneuver length.
+     *
+     * @param probeMax
+     *      the maximum number of the probes of phase 2.
+     *
+     * @param verbose
+     *      {@link Search#USE_SEPARATOR}, {@link Search#INVERSE_SOLUTION} and {@link Search#APPEND_LENGTH} are supported.
+     *
+     * @return The solution string or an error code, see {@link Search#solution(String, int, long, long, int)}
+     */
+    public synchronized String solution(String facelets, int maxDepth, long probeMax, int verbose) {
+        int check = checker.verify(facelets);
+        if (check != 0) {
+            return "Error " + Math.abs(check);
+        }
+        CubieCube.CornConjugate(checker.cc, sym, phase1Cubie[0]);
+        CubieCube.EdgeConjugate(checker.cc, sym, phase1Cubie[0]);
+        this.maxDepth = Math.min(maxDepth, 30);
+        this.probe = 0;
+        this.probeMax = probeMax;
+        this.verbose = verbose;
+        this.solution = null;
+
+        CubieCube c = phase1Cubie[0];
+        int twist = c.getTwist();
+        int flip = c.getFlip();
+        int slice = c.getUDSlice();
+        for (length1 = prun1(twist, flip, slice); length1 <= this.maxDepth; length1++) {
+            if (phase1(twist, flip, slice, length1, -1) == 0) {
+                return solution == null ? "Error 8" : solution.toString();
+            }
+        }
+        return "Error 7";
+    }
+
+    public long numberOfProbes() {
+        return probe;
+    }
+
+    private int prun1(int twist, int flip, int slice) {
+        return Math.max(
+                   CoordCube.getPruning(tables.TwistFlipPrun, twist * CoordCube.N_FLIP + flip),
+                   Math.max(
+                       CoordCube.getPruning(tables.SliceTwistPrun, slice * CoordCube.N_TWIST + twist),
+                       CoordCube.getPruning(tables.SliceFlipPrun, slice * CoordCube.N_FLIP + flip)));
+    }
+
+    private int prun2(int cperm, int eperm, int mperm) {
+        return Math.max(
+                   CoordCube.getPruning(tables.MCPermPrun, cperm * CoordCube.N_MPERM + mperm),
+                   CoordCube.getPruning(tables.MEPermPrun, eperm * CoordCube.N_MPERM + mperm));
+    }
+
+    private static boolean isSkipped(int m, int lm) {
+        // same face, or the opposite face in the wrong order
+        return lm >= 0 && (m / 3 == lm / 3 || m / 3 == lm / 3 - 3);
+    }
+
+    /**
+     * @return 0: Found or Probe limit exceeded, 1: Not found
+     */
+    private int phase1(int twist, int flip, int slice, int maxl, int lm) {
+        if (maxl == 0) {
+            if (twist != 0 || flip != 0 || slice != 0) {
+                return 1;
+            }
+            // a last move of phase 2 would have been found by a shorter phase 1
+            if (lm >= 0 && isPhase2Move(Util.std2ud[lm])) {
+                return 1;
+            }
+            return initPhase2(lm);
+        }
+        for (int m : tables.moves1) {
+            if (isSkipped(m, lm)) {
+                continue;
+            }
+            int twistx = TwistMoveRaw[twist][m];
+            int flipx = FlipMoveRaw[flip][m];
+            int slicex = CoordCube.UDSliceMove[slice][m];
+            if (prun1(twistx, flipx, slicex) >= maxl) {
+                continue;
+            }
+            move[length1 - maxl] = m;
+            if (phase1(twistx, flipx, slicex, maxl - 1, m) == 0) {
+                return 0;
+            }
+        }
+        return 1;
+    }
+
+    private boolean isPhase2Move(int ud) {
+        for (int m : tables.moves2) {
+            if (m == ud) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int initPhase2(int lm) {
+        if (probe >= probeMax) {
+            return 0;
+        }
+        ++probe;
+        for (int i = 0; i < length1; i++) {
+            CubieCube.CornMult(phase1Cubie[i], CubieCube.moveCube[move[i]], phase1Cubie[i + 1]);
+            CubieCube.EdgeMult(phase1Cubie[i], CubieCube.moveCube[move[i]], phase1Cubie[i + 1]);
+        }
+        CubieCube c = phase1Cubie[length1];
+        int cperm = c.getCPerm();
+        int eperm = c.getEPerm();
+        int mperm = c.getMPerm();
+        int maxDep2 = Math.min(MAX_DEPTH2, maxDepth - length1);
+        for (depth2 = prun2(cperm, eperm, mperm); depth2 <= maxDep2; depth2++) {
+            if (phase2(cperm, eperm, mperm, depth2, lm) == 0) {
+                solution = new Util.Solution();
+                solution.setArgs(verbose, 0, length1);
+                for (int i = 0; i < length1 + depth2; i++) {
+                    solution.appendSolMove(CubieCube.SymMove[sym][move[i]]);
+                }
+                return 0;
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * @return 0: Found, 1: Not found
+     */
+    private int phase2(int cperm, int eperm, int mperm, int maxl, int lm) {
+        if (maxl == 0) {
+            return cperm == 0 && eperm == 0 && mperm == 0 ? 0 : 1;
+        }
+        for (int m : tables.moves2) {
+            int mstd = Util.ud2std[m];
+            if (isSkipped(mstd, lm)) {
+                continue;
+            }
+            int cpermx = CPermMoveRaw[cperm][m];
+            int epermx = EPermMoveRaw[eperm][m];
+            int mpermx = CoordCube.MPermMove[mperm][m];
+            if (prun2(cpermx, epermx, mpermx) >= maxl) {
+                continue;
+            }
+            move[length1 + depth2 - maxl] = mstd;
+            if (phase2(cpermx, epermx, mpermx, maxl - 1, mstd) == 0) {
+                return 0;
+            }
+        }
+        return 1;
+    }
+}
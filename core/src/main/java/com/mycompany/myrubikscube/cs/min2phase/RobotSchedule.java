@@ -0,0 +1,179 @@
+package com.mycompany.myrubikscube.cs.min2phase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Timed actuator schedule of a solution for a solving robot with one actuator per face.<br>
+ * Two consecutive moves of opposite faces (e.g. U and D) commute and run at the same time.
+ * A turn accelerates and decelerates, so a half turn takes less than two quarter turns.
+ * Switching to another axis costs a regrip.<br>
+ * Moves are min2phase move indices: U U2 U' R R2 R' F F2 F' D D2 D' L L2 L' B B2 B' = 0..17.
+ */
+public class RobotSchedule {
+
+    /**
+     * Actuator cost model. Times are in milliseconds.
+     */
+    public static class ActuatorModel implements CostSearch.CostModel {
+        final double maxSpeed;
+        final double acceleration;
+        final double regripMillis;
+        final double settleMillis;
+
+        /**
+         * @param maxSpeed
+         *      maximum speed of an actuator, in quarter turns per millisecond.
+         *
+         * @param acceleration
+         *      acceleration and deceleration of an actuator, in quarter turns per millisecond squared.
+         *
+         * @param regripMillis
+         *      time to regrip before a move on another axis than the previous one.
+         *
+         * @param settleMillis
+         *      time after each step before the next one may start.
+         */
+        public ActuatorModel(double maxSpeed, double acceleration, double regripMillis, double settleMillis) {
+            if (maxSpeed <= 0 || acceleration <= 0 || regripMillis < 0 || settleMillis < 0) {
+                throw new IllegalArgumentException("Invalid actuator model");
+            }
+            this.maxSpeed = maxSpeed;
+            this.acceleration = acceleration;
+            this.regripMillis = regripMillis;
+            this.settleMillis = settleMillis;
+        }
+
+        /**
+         * @return time of a turn of the given number of quarter turns with a trapezoidal speed profile.
+         */
+        public double turnMillis(int quarters) {
+            double accelDist = maxSpeed * maxSpeed / acceleration;
+            if (quarters >= accelDist) {
+                return quarters / maxSpeed + maxSpeed / acceleration;
+            }
+            return 2 * Math.sqrt(quarters / acceleration);
+        }
+
+        /**
+         * @return time of a min2phase move index.
+         */
+        public double moveMillis(int move) {
+            return turnMillis(move % 3 == 1 ? 2 : 1);
+        }
+
+        /**
+         * The makespan of the schedule of a solution.
+         */
+        @Override
+        public double cost(String solution) {
+            return compile(parse(solution), this).makespan();
+        }
+    }
+
+    /**
+     * One step of the schedule: one move, or two moves of opposite faces at the same time.
+     */
+    public static class Step {
+        public final double start;
+        public final double duration;
+        public final int move;
+        /**
+         * Move of the opposite face at the same time, -1 if none.
+         */
+        public final int parallelMove;
+
+        Step(double start, double duration, int move, int parallelMove) {
+            this.start = start;
+            this.duration = duration;
+            this.move = move;
+            this.parallelMove = parallelMove;
+        }
+
+        public String toString() {
+            return String.format("%.1f +%.1f %s%s", start, duration, Util.move2str[move].trim(),
+                                 parallelMove == -1 ? "" : " " + Util.move2str[parallelMove].trim());
+        }
+    }
+
+    private final List<Step> steps;
+    private final double makespan;
+
+    private RobotSchedule(List<Step> steps, double makespan) {
+        this.steps = steps;
+        this.makespan = makespan;
+    }
+
+    public List<Step> getSteps() {
+        return steps;
+    }
+
+    /**
+     * @return the time from the start of the first step to the end of the last one, in milliseconds.
+     */
+    public double makespan() {
+        return makespan;
+    }
+
+    /**
+     * Compiles a move sequence into a schedule.
+     *
+     * @param moves
+     *      min2phase move indices.
+     */
+    public static RobotSchedule compile(int[] moves, ActuatorModel model) {
+        List<Step> steps = new ArrayList<Step>();
+        double time = 0;
+        int lastAxis = -1;
+        for (int i = 0; i < moves.length; i++) {
+            int move = moves[i];
+            int axis = move / 3 % 3;
+            int parallel = -1;
+            double duration = model.moveMillis(move);
+            if (i + 1 < moves.length && moves[i + 1] / 3 % 3 == axis && moves[i + 1] / 3 != move / 3) {
+                parallel = moves[++i];
+                duration = Math.max(duration, model.moveMillis(parallel));
+            }
+            if (lastAxis != -1 && axis != lastAxis) {
+                time += model.regripMillis;
+            }
+            steps.add(new Step(time, duration, move, parallel));
+            time += duration + model.settleMillis;
+            lastAxis = axis;
+        }
+        if (!steps.isEmpty()) {
+            time -= model.settleMillis;
+        }
+        return new RobotSchedule(steps, time);
+    }
+
+    /**
+     * Parses a solution string of {@link Search#solution(String, int, long, long, int)} into move indices.
+     */
+    public static int[] parse(String solution) {
+        return Util.str2moves(solution);
+    }
+
+    /**
+     * Enumerates solutions of at most maxDepth moves within the time budget and returns the schedule with the
+     * smallest makespan, see {@link CostSearch}.
+     *
+     * @return the schedule, or null if the cube is invalid or no solution was found.
+     */
+    public static RobotSchedule solve(String facelets, int maxDepth, long timeBudget, ActuatorModel model) {
+        String sol = new CostSearch().solution(facelets, maxDepth, timeBudget, model);
+        if (sol.startsWith("Error")) {
+            return null;
+        }
+        return compile(parse(sol), model);
+    }
+
+    public String toString() {
+        StringBuffer sb = new StringBuffer();
+        for (Step step : steps) {
+            sb.append(step).append('\n');
+        }
+        sb.append(String.format("makespan %.1f", makespan));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,298 @@
+package com.mycompany.myrubikscube.cs.min2phase;
+
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Random-state scramble generator.<br>
+ * Generates uniformly random cubes, rejects the ones that can be solved in less than minLength
+ * moves, and solves the rest with {@link Search#INVERSE_SOLUTION} in background worker threads.<br>
+ * The i-th scramble only depends on the seed and i, so the output is reproducible for a given seed
+ * regardless of the number of threads. Scrambles are returned in order by {@link #next()}.<br>
+ * Only the pacing of the target rate is locked, so {@link #close()} and the metrics never wait
+ * for a scramble.
+ */
+public class ScrambleGenerator {
+
+    static final int BLOCK_PER_THREAD = 16;
+    static final int QUEUED_BLOCKS = 2;
+    static final long POLL_MILLIS = 100;
+
+    private final long seed;
+    private final int minLength;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int maxDepth = 21;
+    private long probeMax = 100000;
+    private long nodeMax = 1000000;
+    private volatile double targetRate = 0;
+
+    private final ThreadLocal<Worker> workers = new ThreadLocal<Worker>() {
+        @Override
+        protected Worker initialValue() {
+            return new Worker();
+        }
+    };
+
+    private volatile BlockingQueue<String> queue;
+    private volatile Thread producer;
+    private volatile boolean closed = false;
+    private volatile Throwable failure = null;
+    private volatile long startNanos = 0;
+
+    // guards nextEmitNanos
+    private final Object pacing = new Object();
+    private long nextEmitNanos = 0;
+
+    private final AtomicLong generated = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong generateNanos = new AtomicLong();
+    private final AtomicLong checkNanos = new AtomicLong();
+    private final AtomicLong solveNanos = new AtomicLong();
+    private final AtomicLong emitted = new AtomicLong();
+    private final AtomicLong waitNanos = new AtomicLong();
+
+    private static class Worker {
+        final Random gen = new Random();
+        final Search search = new Search();
+        final LowerBound bound = new LowerBound();
+    }
+
+    /**
+     * @param seed
+     *      the seed of all random streams.
+     *
+     * @param minLength
+     *      the minimum optimal length of the generated states, e.g. 2 as required by the WCA regulations.
+     */
+    public ScrambleGenerator(long seed, int minLength) {
+        this.seed = seed;
+        this.minLength = minLength;
+    }
+
+    /**
+     * Number of worker threads, the number of available processors by default.
+     */
+    public void setThreads(int threads) {
+        checkNotStarted();
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Limits of {@link Search#solution(String, int, long, long, int)}, 21 and 100000 by default.
+     */
+    public void setSearchLimits(int maxDepth, long probeMax) {
+        checkNotStarted();
+        this.maxDepth = maxDepth;
+        this.probeMax = probeMax;
+    }
+
+    /**
+     * Node budget of the minLength check. A state that cannot be proven within the budget is rejected.
+     */
+    public void setNodeMax(long nodeMax) {
+        checkNotStarted();
+        this.nodeMax = nodeMax;
+    }
+
+    /**
+     * Scrambles per second returned by {@link #next()}, 0 (default) for as fast as the workers allow.
+     */
+    public void setTargetRate(double scramblesPerSecond) {
+        this.targetRate = scramblesPerSecond;
+    }
+
+    private void checkNotStarted() {
+        if (producer != null) {
+            throw new IllegalStateException("ScrambleGenerator already started");
+        }
+    }
+
+    /**
+     * @return the next scramble. Blocks until it is available or the target rate allows it.
+     */
+    public String next() {
+        checkOpen();
+        if (producer == null) {
+            start();
+        }
+        long t = System.nanoTime();
+        String ret;
+        try {
+            while ((ret = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+                checkOpen();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+        waitNanos.addAndGet(System.nanoTime() - t);
+        double rate = targetRate;
+        if (rate > 0) {
+            // reserve the next emit time, then sleep without holding the lock
+            long delay;
+            synchronized (pacing) {
+                long now = System.nanoTime();
+                if (nextEmitNanos < now) {
+                    nextEmitNanos = now;
+                }
+                delay = nextEmitNanos - now;
+                nextEmitNanos += (long) (1e9 / rate);
+            }
+            if (delay > 0) {
+                sleepNanos(delay);
+            }
+        }
+        emitted.incrementAndGet();
+        return ret;
+    }
+
+    private void checkOpen() {
+        if (failure != null) {
+            throw new IllegalStateException("ScrambleGenerator failed", failure);
+        }
+        if (closed) {
+            throw new IllegalStateException("ScrambleGenerator closed");
+        }
+    }
+
+    /**
+     * Stops the worker threads. Callers waiting in {@link #next()} fail within {@link #POLL_MILLIS}.
+     */
+    public void close() {
+        closed = true;
+        Thread t = producer;
+        if (t != null) {
+            t.interrupt();
+        }
+    }
+
+    private synchronized void start() {
+        if (producer != null) {
+            return;
+        }
+        queue = new ArrayBlockingQueue<String>(QUEUED_BLOCKS * threads * BLOCK_PER_THREAD);
+        startNanos = System.nanoTime();
+        Thread t = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    produce();
+                } catch (Throwable e) {
+                    failure = e;
+                }
+            }
+        }, "min2phase-scramble");
+        t.setDaemon(true);
+        producer = t;
+        t.start();
+    }
+
+    private void produce() {
+        final int blockSize = threads * BLOCK_PER_THREAD;
+        for (long base = 0; !closed; base += blockSize) {
+            final String[] ret = new String[blockSize];
+            final long blockBase = base;
+            try {
+                Util.parallelRange(blockSize, threads, new Util.RangeTask() {
+                    public void run(int from, int to) {
+                        Worker w = workers.get();
+                        for (int i = from; i < to && !closed; i++) {
+                            ret[i] = scramble(w, blockBase + i);
+                        }
+                    }
+                });
+            } catch (RuntimeException e) {
+                if (closed) {
+                    return;
+                }
+                throw e;
+            }
+            if (closed) {
+                return;
+            }
+            try {
+                for (String scramble : ret) {
+                    queue.put(scramble);
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private String scramble(Worker w, long index) {
+        w.gen.setSeed(Util.mixSeed(seed, index));
+        while (true) {
+            long t0 = System.nanoTime();
+            String facelets = Tools.randomCube(w.gen);
+            long t1 = System.nanoTime();
+            generated.incrementAndGet();
+            generateNanos.addAndGet(t1 - t0);
+            boolean ok = w.bound.setState(facelets) == 0 && w.bound.atLeast(minLength, nodeMax) >= minLength;
+            long t2 = System.nanoTime();
+            checkNanos.addAndGet(t2 - t1);
+            if (!ok) {
+                rejected.incrementAndGet();
+                continue;
+            }
+            String sol = w.search.solution(facelets, maxDepth, probeMax, 0, Search.INVERSE_SOLUTION);
+            solveNanos.addAndGet(System.nanoTime() - t2);
+            if (sol.startsWith("Error")) {
+                rejected.incrementAndGet();
+                continue;
+            }
+            return sol;
+        }
+    }
+
+    private static void sleepNanos(long nanos) {
+        try {
+            Thread.sleep(nanos / 1000000, (int) (nanos % 1000000));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return number of random states generated, including rejected ones.
+     */
+    public long numberOfGenerated() {
+        return generated.get();
+    }
+
+    /**
+     * @return number of random states rejected by the minLength check or the search limits.
+     */
+    public long numberOfRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * @return number of scrambles returned by {@link #next()}.
+     */
+    public long numberOfEmitted() {
+        return emitted.get();
+    }
+
+    /**
+     * @return time spent in each stage in milliseconds, summed over all workers:
+     *      {generate, minLength check, solve, wait in next()}
+     */
+    public double[] stageMillis() {
+        return new double[] {
+            generateNanos.get() / 1e6, checkNanos.get() / 1e6, solveNanos.get() / 1e6, waitNanos.get() / 1e6
+        };
+    }
+
+    /**
+     * @return scrambles per second returned by {@link #next()} since the first call.
+     */
+    public double rate() {
+        if (producer == null) {
+            return 0;
+        }
+        return emitted.get() * 1e9 / Math.max(1, System.nanoTime() - startNanos);
+    }
+}
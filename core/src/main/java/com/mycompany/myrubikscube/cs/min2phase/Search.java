@@ -70,6 +70,7 @@ public class Search {
     int maxPreMoves = 0;
 
     protected boolean isRec = false;
+    protected boolean isDirect = false;
 
     /**
      *     Verbose_Mask determines if a " . " separates the phase1 and phase2 parts of the solver string like in F' R B R L2 F .
@@ -92,6 +93,12 @@ public class Search {
      */
     public static final int OPTIMAL_SOLUTION = 0x8;
 
+    /**
+     *     Verbose_Mask determines if a cube which is already in &lt;U,D,R2,F2,L2,B2&gt; (of any axis) will be solved
+     *     optimally within this subgroup by phase 2 only. The solution may be longer than the optimal one.
+     */
+    public static final int OPTIMAL_IN_G1 = 0x10;
+
 
     public Search() {
         for (int i = 0; i < 21; i++) {
@@ -177,6 +184,26 @@ public class Search {
         if (check != 0) {
             return "Error " + Math.abs(check);
         }
+        return solve(maxDepth, probeMax, probeMin, verbose);
+    }
+
+    /**
+     * Same as {@link #solution(String, int, long, long, int)} for a cube tracked move by move, which
+     * is always valid, so the facelets are neither built nor checked.
+     */
+    public synchronized String solution(LiveCubie cube, int maxDepth, long probeMax, long probeMin, int verbose) {
+        return solution(cube.cc, maxDepth, probeMax, probeMin, verbose);
+    }
+
+    /**
+     * Same as {@link #solution(String, int, long, long, int)} for a valid cubie cube.
+     */
+    synchronized String solution(CubieCube c, int maxDepth, long probeMax, long probeMin, int verbose) {
+        cc.copy(c);
+        return solve(maxDepth, probeMax, probeMin, verbose);
+    }
+
+    private String solve(int maxDepth, long probeMax, long probeMin, int verbose) {
         this.solLen = maxDepth + 1;
         this.probe = 0;
         this.probeMax = probeMax;
@@ -184,10 +211,28 @@ public class Search {
         this.verbose = verbose;
         this.solution = null;
         this.isRec = false;
+        this.isDirect = false;
 
         CoordCube.init(false);
         initSearch();
 
+        if ((verbose & OPTIMAL_SOLUTION) == 0) {
+            String sol = searchLastLayer();
+            if (sol != null && this.probeMin == 0) {
+                return sol;
+            }
+            // the AUF around the stored algorithm may not be optimal, keep searching up to probeMin
+            isDirect = false;
+        }
+        if ((verbose & (OPTIMAL_SOLUTION | OPTIMAL_IN_G1)) != OPTIMAL_SOLUTION) {
+            boolean optimalInG1 = (verbose & OPTIMAL_IN_G1) != 0;
+            String sol = searchG1(optimalInG1 ? solLen - 1 : Math.min(MAX_DEPTH2, solLen - 1));
+            if (sol != null && (optimalInG1 || this.probeMin == 0)) {
+                return sol;
+            }
+            // keep searching for a shorter solution than the one in the subgroup, if any
+            isDirect = false;
+        }
         return (verbose & OPTIMAL_SOLUTION) == 0 ? search() : searchopt();
     }
 
@@ -215,7 +260,8 @@ public class Search {
         this.probeMax = probeMax;
         this.probeMin = Math.min(probeMin, probeMax);
         this.solution = null;
-        this.isRec = (this.verbose & OPTIMAL_SOLUTION) == (verbose & OPTIMAL_SOLUTION);
+        this.isRec = !isDirect && (this.verbose & OPTIMAL_SOLUTION) == (verbose & OPTIMAL_SOLUTION);
+        this.isDirect = false;
         this.verbose = verbose;
         return (verbose & OPTIMAL_SOLUTION) == 0 ? search() : searchopt();
     }
@@ -326,6 +372,107 @@ public class Search {
         return solution == null ? "Error 7" : solution.toString();
     }
 
+    /**
+     * Looks up a last layer case in the precomputed {@link LastLayer} table, no search at all.
+     * A hit becomes the current solution, which a search with probeMin &gt; 0 then tries to shorten.
+     *
+     * @return the solution, or null if the cube is not a last layer case or the solution is longer than maxDepth.
+     */
+    protected String searchLastLayer() {
+        Util.Solution sol = LastLayer.lookup(urfCubieCube[0], verbose);
+        if (sol == null || sol.length >= solLen) {
+            return null;
+        }
+        ++probe;
+        solution = sol;
+        solLen = sol.length;
+        isDirect = true;
+        return solution.toString();
+    }
+
+    /**
+     * Phase 2 IDA* for a cube which is already in &lt;U,D,R2,F2,L2,B2&gt; of some axis, phase 1 is skipped.<br>
+     * Each depth counts as one probe towards probeMax.
+     *
+     * @return the solution, "Error 7" or "Error 8" if no solution within maxl moves or probeMax probes
+     *      and {@link #OPTIMAL_IN_G1} is set, otherwise null if the cube is not in the subgroup or no
+     *      solution within the limits.
+     */
+    protected String searchG1(int maxl) {
+        for (urfIdx = 0; urfIdx < 3; urfIdx++) {
+            CubieCube c = urfCubieCube[urfIdx];
+            if (c.getTwist() == 0 && c.getFlip() == 0 && c.getUDSlice() == 0) {
+                break;
+            }
+        }
+        if (urfIdx == 3) {
+            return null;
+        }
+        CubieCube c = urfCubieCube[urfIdx];
+        int p2corn = c.getCPermSym();
+        int p2csym = p2corn & 0xf;
+        p2corn >>= 4;
+        int p2edge = c.getEPermSym();
+        int p2esym = p2edge & 0xf;
+        p2edge >>= 4;
+        int p2mid = c.getMPerm();
+
+        length1 = depth1 = preMoveLen = 0;
+        for (int depth2 = phase2Prun(c); depth2 <= maxl; depth2++) {
+            if (probe >= probeMax) {
+                if ((verbose & OPTIMAL_IN_G1) == 0) {
+                    return null;
+                }
+                return solution != null ? solution.toString() : "Error 8";
+            }
+            ++probe;
+            int ret = phase2(p2edge, p2esym, p2corn, p2csym, p2mid, depth2, 0, 10);
+            if (ret < 0) {
+                continue;
+            }
+            solution = new Util.Solution();
+            solution.setArgs(verbose, urfIdx, 0);
+            for (int i = 0; i < depth2 - ret; i++) {
+                solution.appendSolMove(move[i]);
+            }
+            solLen = solution.length;
+            isDirect = true;
+            return solution.toString();
+        }
+        if ((verbose & OPTIMAL_IN_G1) == 0) {
+            return null;
+        }
+        // nothing shorter than the last layer solution, if any
+        return solution != null ? solution.toString() : "Error 7";
+    }
+
+    static int phase2Prun(CubieCube c) {
+        int corn = c.getCPermSym();
+        int csym = corn & 0xf;
+        corn >>= 4;
+        int edge = c.getEPermSym();
+        int esym = edge & 0xf;
+        edge >>= 4;
+        int mid = c.getMPerm();
+        int edgei = CubieCube.getPermSymInv(edge, esym, false);
+        int corni = CubieCube.getPermSymInv(corn, csym, true);
+        return phase2Prun(corn, csym, edge, esym, mid, edgei, corni);
+    }
+
+    /**
+     * Phase 2 lower bound of a cube and of its inverse, from the sym coordinates of {@link #initPhase2}.
+     */
+    static int phase2Prun(int p2corn, int p2csym, int p2edge, int p2esym, int p2mid, int edgei, int corni) {
+        return Math.max(
+                   CoordCube.getPruning(CoordCube.EPermCCombPPrun,
+                                        (edgei >> 4) * CoordCube.N_COMB + CoordCube.CCombPConj[CubieCube.Perm2CombP[corni >> 4] & 0xff][CubieCube.SymMultInv[edgei & 0xf][corni & 0xf]]),
+                   Math.max(
+                       CoordCube.getPruning(CoordCube.EPermCCombPPrun,
+                                            p2edge * CoordCube.N_COMB + CoordCube.CCombPConj[CubieCube.Perm2CombP[p2corn] & 0xff][CubieCube.SymMultInv[p2esym][p2csym]]),
+                       CoordCube.getPruning(CoordCube.MCPermPrun,
+                                            p2corn * CoordCube.N_MPERM + CoordCube.MPermConj[p2mid][p2csym])));
+    }
+
     /**
      * @return
      *      0: Found or Probe limit exceeded
@@ -415,14 +562,7 @@ public class Search {
     }
 
     protected int initPhase2(int p2corn, int p2csym, int p2edge, int p2esym, int p2mid, int edgei, int corni) {
-        int prun = Math.max(
-                       CoordCube.getPruning(CoordCube.EPermCCombPPrun,
-                                            (edgei >> 4) * CoordCube.N_COMB + CoordCube.CCombPConj[CubieCube.Perm2CombP[corni >> 4] & 0xff][CubieCube.SymMultInv[edgei & 0xf][corni & 0xf]]),
-                       Math.max(
-                           CoordCube.getPruning(CoordCube.EPermCCombPPrun,
-                                                p2edge * CoordCube.N_COMB + CoordCube.CCombPConj[CubieCube.Perm2CombP[p2corn] & 0xff][CubieCube.SymMultInv[p2esym][p2csym]]),
-                           CoordCube.getPruning(CoordCube.MCPermPrun,
-                                                p2corn * CoordCube.N_MPERM + CoordCube.MPermConj[p2mid][p2csym])));
+        int prun = phase2Prun(p2corn, p2csym, p2edge, p2esym, p2mid, edgei, corni);
 
         if (prun > maxDep2) {
             return prun - maxDep2;
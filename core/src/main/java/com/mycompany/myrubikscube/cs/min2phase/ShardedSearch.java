@@ -0,0 +1,525 @@
+package com.mycompany.myrubikscube.cs.min2phase;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Optimal search sharded over worker processes on the same host.<br>
+ * The coordinator deepens the phase 1 length like {@link Search#OPTIMAL_SOLUTION} and splits each length
+ * into one task per pair of first moves. Workers connect to a localhost socket, pull one task at a time
+ * and answer with the solution of the subtree, if any. The first solution of a length is optimal, the
+ * coordinator then broadcasts the bound so that the workers drop the rest of that length.<br>
+ * A worker which dies loses nothing but its current task, which goes back to the queue. Workers may
+ * connect, or reconnect, at any time.<br>
+ * Worker processes map the pruning tables from a file written by the coordinator instead of generating them.
+ *
+ * <pre>
+ *     java -cp ... com.mycompany.myrubikscube.cs.min2phase.ShardedSearch worker port [tableFile]
+ * </pre>
+ */
+public class ShardedSearch {
+
+    /**
+     * Lengths up to LOCAL_DEPTH are searched by the coordinator, the first two moves of a longer
+     * solution never reach a phase 1 leaf.
+     */
+    static final int LOCAL_DEPTH = 5;
+
+    private final ServerSocket server;
+    private final List<Connection> connections = new ArrayList<Connection>();
+    private File tableFile;
+    private final Object tableLock = new Object();
+
+    private final Object lock = new Object();
+    private final LinkedList<int[]> tasks = new LinkedList<int[]>();
+    private int jobId = 0;
+    private String jobFacelets;
+    private int jobVerbose;
+    private int pending;
+    private String found;
+    private long tasksDone;
+    private volatile boolean closed = false;
+
+    /**
+     * Listens on an ephemeral localhost port.
+     */
+    public ShardedSearch() throws IOException {
+        server = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        Thread acceptor = new Thread(new Runnable() {
+            public void run() {
+                accept();
+            }
+        }, "min2phase-coordinator");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * The pruning table file of the worker processes. It is written by the first call of
+     * {@link #startWorkerProcess()} if it does not exist.
+     */
+    public void setTableFile(File tableFile) {
+        this.tableFile = tableFile;
+    }
+
+    /**
+     * @return number of connected workers.
+     */
+    public int numberOfWorkers() {
+        synchronized (connections) {
+            return connections.size();
+        }
+    }
+
+    /**
+     * @return number of tasks finished since the start.
+     */
+    public long numberOfTasks() {
+        synchronized (lock) {
+            return tasksDone;
+        }
+    }
+
+    /**
+     * Starts a worker in a thread of this process. It talks to the coordinator over the socket like a
+     * worker process does.
+     */
+    public void startLocalWorker() {
+        Thread t = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    new Worker(null).serve(getPort());
+                } catch (IOException e) {
+                    // coordinator closed
+                }
+            }
+        }, "min2phase-local-worker");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    /**
+     * Starts a worker JVM with the class path of this one.
+     *
+     * @return the process, which may be destroyed and started again at any time. A worker only writes
+     *      to its output if it fails.
+     */
+    public Process startWorkerProcess() throws IOException {
+        if (tableFile == null) {
+            throw new IllegalStateException("No table file");
+        }
+        synchronized (tableLock) {
+            if (tableFile.length() != CoordCube.prunTableBytes()) {
+                CoordCube.writePrun(tableFile);
+            }
+        }
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        ProcessBuilder pb = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                                               ShardedSearch.class.getName(), "worker",
+                                               String.valueOf(getPort()), tableFile.getPath());
+        pb.redirectErrorStream(true);
+        return pb.start();
+    }
+
+    /**
+     * Computes an optimal solution on the connected workers. Blocks until a worker is available.
+     *
+     * @return the same as {@link Search#solution(String, int, long, long, int)} with
+     *      {@link Search#OPTIMAL_SOLUTION}, without probe limit.
+     */
+    public synchronized String solution(String facelets, int maxDepth, int verbose) {
+        verbose |= Search.OPTIMAL_SOLUTION;
+        String sol = new Search().solution(facelets, Math.min(maxDepth, LOCAL_DEPTH), Long.MAX_VALUE, 0, verbose);
+        if (!sol.equals("Error 7") || maxDepth <= LOCAL_DEPTH) {
+            return sol;
+        }
+        int job;
+        synchronized (lock) {
+            job = ++jobId;
+            jobFacelets = facelets;
+            jobVerbose = verbose;
+            found = null;
+        }
+        int taskId = 0;
+        for (int len = LOCAL_DEPTH + 1; len <= maxDepth; len++) {
+            synchronized (lock) {
+                tasks.clear();
+                pending = 0;
+                for (int m1 = 0; m1 < 18; m1++) {
+                    for (int m2 = 0; m2 < 18; m2++) {
+                        int axis1 = m1 / 3 * 3;
+                        int axis2 = m2 / 3 * 3;
+                        if (axis2 == axis1 || axis2 == axis1 - 9) {
+                            continue;
+                        }
+                        tasks.add(new int[] {job, taskId++, len, m1, m2});
+                        pending++;
+                    }
+                }
+                lock.notifyAll();
+                while (pending > 0 && found == null && !closed) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        closed = true;
+                    }
+                }
+                if (closed) {
+                    return "Error 8";
+                }
+                if (found != null) {
+                    tasks.clear();
+                    broadcast("BOUND " + job + " " + len);
+                    return found;
+                }
+            }
+        }
+        return "Error 7";
+    }
+
+    /**
+     * Stops accepting workers and disconnects them. Worker processes exit.
+     */
+    public void close() {
+        closed = true;
+        synchronized (lock) {
+            lock.notifyAll();
+        }
+        try {
+            server.close();
+        } catch (IOException e) {
+            // ignore
+        }
+        synchronized (connections) {
+            for (Connection c : connections) {
+                c.close();
+            }
+        }
+    }
+
+    private void broadcast(String msg) {
+        synchronized (connections) {
+            for (Connection c : connections) {
+                c.send(msg);
+            }
+        }
+    }
+
+    private void accept() {
+        while (!closed) {
+            Socket socket;
+            try {
+                socket = server.accept();
+            } catch (IOException e) {
+                return;
+            }
+            Connection c = new Connection(socket);
+            synchronized (connections) {
+                connections.add(c);
+            }
+            Thread t = new Thread(c, "min2phase-connection");
+            t.setDaemon(true);
+            t.start();
+        }
+    }
+
+    private void finish(int[] task, String sol) {
+        synchronized (lock) {
+            if (task[0] != jobId) {
+                return;
+            }
+            tasksDone++;
+            pending--;
+            if (sol != null && found == null) {
+                found = sol;
+            }
+            lock.notifyAll();
+        }
+    }
+
+    private void requeue(int[] task) {
+        synchronized (lock) {
+            if (task[0] == jobId && found == null) {
+                tasks.addFirst(task);
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private class Connection implements Runnable {
+        private final Socket socket;
+        private PrintWriter out;
+
+        Connection(Socket socket) {
+            this.socket = socket;
+        }
+
+        void send(String msg) {
+            synchronized (this) {
+                if (out != null) {
+                    out.println(msg);
+                    out.flush();
+                }
+            }
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+
+        public void run() {
+            int[] task = null;
+            try {
+                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8"));
+                synchronized (this) {
+                    out = new PrintWriter(socket.getOutputStream());
+                }
+                if (!"READY".equals(in.readLine())) {
+                    return;
+                }
+                int sentJob = -1;
+                while (true) {
+                    String facelets;
+                    int verbose;
+                    synchronized (lock) {
+                        while (!closed && tasks.isEmpty()) {
+                            lock.wait();
+                        }
+                        if (closed) {
+                            return;
+                        }
+                        task = tasks.removeFirst();
+                        facelets = jobFacelets;
+                        verbose = jobVerbose;
+                    }
+                    if (sentJob != task[0]) {
+                        send("JOB " + task[0] + " " + verbose + " " + facelets);
+                        sentJob = task[0];
+                    }
+                    send("TASK " + task[0] + " " + task[1] + " " + task[2] + " " + task[3] + " " + task[4]);
+                    String line = in.readLine();
+                    if (line == null) {
+                        throw new IOException("Worker disconnected");
+                    }
+                    // RESULT job task solution|-
+                    String[] tokens = line.split(" ", 4);
+                    if (tokens.length < 4 || !tokens[0].equals("RESULT")
+                            || Integer.parseInt(tokens[1]) != task[0] || Integer.parseInt(tokens[2]) != task[1]) {
+                        throw new IOException("Unexpected reply: " + line);
+                    }
+                    finish(task, tokens[3].equals("-") ? null : tokens[3]);
+                    task = null;
+                }
+            } catch (IOException e) {
+                // the worker died, its task goes back to the queue
+            } catch (InterruptedException e) {
+                // closed
+            } finally {
+                if (task != null) {
+                    requeue(task);
+                }
+                synchronized (connections) {
+                    connections.remove(this);
+                }
+                close();
+            }
+        }
+    }
+
+    /**
+     * Worker side. Searches the subtree of a task with the phase 1 recursion of {@link Search#OPTIMAL_SOLUTION}.
+     */
+    static class Worker extends Search {
+        private final File tableFile;
+        private volatile int boundJob = -1;
+        private volatile int boundLength = Integer.MAX_VALUE;
+        private int job = -1;
+
+        Worker(File tableFile) {
+            this.tableFile = tableFile;
+        }
+
+        void serve(int port) throws IOException {
+            if (tableFile != null && tableFile.exists()) {
+                CoordCube.initFrom(tableFile);
+            } else {
+                CoordCube.init(true);
+            }
+            Socket socket = new Socket(InetAddress.getByName("127.0.0.1"), port);
+            try {
+                final BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8"));
+                PrintWriter out = new PrintWriter(socket.getOutputStream());
+                final BlockingQueue<String> commands = new LinkedBlockingQueue<String>();
+                Thread reader = new Thread(new Runnable() {
+                    public void run() {
+                        try {
+                            String line;
+                            while ((line = in.readLine()) != null) {
+                                if (line.startsWith("BOUND ")) {
+                                    String[] tokens = line.split(" ");
+                                    boundLength = Integer.MAX_VALUE;
+                                    boundJob = Integer.parseInt(tokens[1]);
+                                    boundLength = Integer.parseInt(tokens[2]);
+                                } else {
+                                    commands.add(line);
+                                }
+                            }
+                        } catch (IOException e) {
+                            // disconnected
+                        }
+                        commands.add("QUIT");
+                    }
+                }, "min2phase-worker-reader");
+                reader.setDaemon(true);
+                reader.start();
+
+                out.println("READY");
+                out.flush();
+                while (true) {
+                    String line;
+                    try {
+                        line = commands.take();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    String[] tokens = line.split(" ");
+                    if (tokens[0].equals("JOB")) {
+                        setJob(Integer.parseInt(tokens[1]), Integer.parseInt(tokens[2]), tokens[3]);
+                    } else if (tokens[0].equals("TASK")) {
+                        String sol = searchPrefix(Integer.parseInt(tokens[3]),
+                                                  Integer.parseInt(tokens[4]), Integer.parseInt(tokens[5]));
+                        out.println("RESULT " + tokens[1] + " " + tokens[2] + " " + (sol == null ? "-" : sol));
+                        out.flush();
+                    } else {
+                        return;
+                    }
+                }
+            } finally {
+                socket.close();
+            }
+        }
+
+        void setJob(int job, int verbose, String facelets) {
+            this.job = job;
+            this.verbose = verbose;
+            verify(facelets);
+            initSearch();
+            int maxprun1 = 0;
+            int maxprun2 = 0;
+            for (int i = 0; i < 6; i++) {
+                urfCoordCube[i].calcPruning(false);
+                if (i < 3) {
+                    maxprun1 = Math.max(maxprun1, urfCoordCube[i].prun);
+                } else {
+                    maxprun2 = Math.max(maxprun2, urfCoordCube[i].prun);
+                }
+            }
+            urfIdx = maxprun2 > maxprun1 ? 3 : 0;
+        }
+
+        private boolean isAborted() {
+            return boundJob == job && boundLength <= length1;
+        }
+
+        /**
+         * @return the solution of length len starting with m1 m2 in the search space of
+         *      {@link #searchopt()}, or null.
+         */
+        String searchPrefix(int len, int m1, int m2) {
+            length1 = len;
+            solLen = len + 1;
+            solution = null;
+            probe = 0;
+            probeMax = Long.MAX_VALUE;
+            probeMin = 0;
+            isRec = false;
+            valid1 = 0;
+            phase1Cubie[0] = urfCubieCube[urfIdx];
+            CoordCube ud = urfCoordCube[0 + urfIdx];
+            CoordCube rl = urfCoordCube[1 + urfIdx];
+            CoordCube fb = urfCoordCube[2 + urfIdx];
+            if (isAborted() || ud.prun > len || rl.prun > len || fb.prun > len) {
+                return null;
+            }
+            long ssym = selfSym;
+            if (!doMove(ud, rl, fb, ssym, len, m1)) {
+                return null;
+            }
+            ssym &= CubieCube.moveCubeSym[m1];
+            if (!doMove(nodeUD[len], nodeRL[len], nodeFB[len], ssym, len - 1, m2)) {
+                return null;
+            }
+            ssym &= CubieCube.moveCubeSym[m2];
+            phase1opt(nodeUD[len - 1], nodeRL[len - 1], nodeFB[len - 1], ssym, len - 2, m2 / 3 * 3);
+            return solution == null || isAborted() ? null : solution.toString();
+        }
+
+        /**
+         * One move of {@link #phase1opt(CoordCube, CoordCube, CoordCube, long, int, int)}.
+         */
+        private boolean doMove(CoordCube ud, CoordCube rl, CoordCube fb, long ssym, int maxl, int m) {
+            int skipMoves = CubieCube.getSkipMoves(ssym);
+            if (skipMoves != 0 && (skipMoves & 1 << m) != 0) {
+                return false;
+            }
+            int prun_ud = Math.max(nodeUD[maxl].doMovePrun(ud, m, false),
+                                   USE_CONJ_PRUN ? nodeUD[maxl].doMovePrunConj(ud, m) : 0);
+            if (prun_ud >= maxl) {
+                return false;
+            }
+            int mrl = CubieCube.urfMove[2][m];
+            int prun_rl = Math.max(nodeRL[maxl].doMovePrun(rl, mrl, false),
+                                   USE_CONJ_PRUN ? nodeRL[maxl].doMovePrunConj(rl, mrl) : 0);
+            if (prun_rl >= maxl) {
+                return false;
+            }
+            int mfb = CubieCube.urfMove[2][mrl];
+            int prun_fb = Math.max(nodeFB[maxl].doMovePrun(fb, mfb, false),
+                                   USE_CONJ_PRUN ? nodeFB[maxl].doMovePrunConj(fb, mfb) : 0);
+            if (prun_ud == prun_rl && prun_rl == prun_fb && prun_fb != 0) {
+                prun_fb++;
+            }
+            if (prun_fb >= maxl) {
+                return false;
+            }
+            move[length1 - maxl] = m;
+            return true;
+        }
+
+        @Override
+        protected int phase1opt(CoordCube ud, CoordCube rl, CoordCube fb, long ssym, int maxl, int lm) {
+            if (isAborted()) {
+                return 0;
+            }
+            return super.phase1opt(ud, rl, fb, ssym, maxl, lm);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || !args[0].equals("worker")) {
+            System.err.println("Usage: ShardedSearch worker port [tableFile]");
+            System.exit(1);
+        }
+        new Worker(args.length > 2 ? new File(args[2]) : null).serve(Integer.parseInt(args[1]));
+    }
+}
@@ -0,0 +1,335 @@
+package com.mycompany.myrubikscube.cs.min2phase;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Picks the arguments of {@link Search#solution(String, int, long, long, int)} for a latency target on
+ * the current device.<br>
+ * Each solve records its time, its probes and the probe count at which each shorter solution was found.
+ * From the recent solves, the time of a solve is fitted as a linear function of its probes, and probeMax
+ * is the number of probes whose predicted time plus the 99th percentile of the fit residuals meets the
+ * target, but never less than the probes which 99% of the solves need for a first solution. probeMin is
+ * the smallest budget whose mean solution length is as good as the one of probeMax. Every
+ * {@link #EXPLORE_PERIOD}-th solve searches up to probeMax to learn how the length improves with more
+ * probes. A solve which runs out of probes is retried without limit, for the first solution, unless the
+ * arguments are overridden, in which case "Error 8" is returned. The retry is part of the solve: its time
+ * and probes are added to the sample, so the probes of its first solution raise the next probeMax.<br>
+ * maxDepth stays 21 unless overridden: a first solution of at most 21 moves is found within a few probes,
+ * and a smaller cap would only turn slow solves into failures.<br>
+ * The profile is saved and loaded as text, so it survives restarts.
+ */
+public class SolveTuner {
+
+    public static final int MAX_SAMPLES = 256;
+    public static final int MIN_SAMPLES = 16;
+    public static final int EXPLORE_PERIOD = 16;
+
+    static final String HEADER = "# min2phase solve profile v1";
+
+    /**
+     * One solve: time, probes, and the probe count at which each shorter solution was found.
+     */
+    static class Sample {
+        final double millis;
+        final long probes;
+        final long[] improveProbes;
+        final int[] improveLength;
+
+        Sample(double millis, long probes, long[] improveProbes, int[] improveLength) {
+            this.millis = millis;
+            this.probes = probes;
+            this.improveProbes = improveProbes;
+            this.improveLength = improveLength;
+        }
+
+        /**
+         * @return the length found within the given probes, or the final length if the solve stopped before.
+         */
+        int lengthAt(long probe) {
+            int len = improveLength.length == 0 ? 0 : improveLength[0];
+            for (int i = 0; i < improveProbes.length && improveProbes[i] <= probe; i++) {
+                len = improveLength[i];
+            }
+            return len;
+        }
+    }
+
+    private class TunedSearch extends Search {
+        long[] improveProbes = new long[32];
+        int[] improveLength = new int[32];
+        int improvements;
+
+        @Override
+        protected int initPhase2(int p2corn, int p2csym, int p2edge, int p2esym, int p2mid, int edgei, int corni) {
+            int len = solLen;
+            int ret = super.initPhase2(p2corn, p2csym, p2edge, p2esym, p2mid, edgei, corni);
+            if (solLen != len) {
+                record(solLen);
+            }
+            return ret;
+        }
+
+        @Override
+        protected String searchLastLayer() {
+            String sol = super.searchLastLayer();
+            if (sol != null) {
+                record(solLen);
+            }
+            return sol;
+        }
+
+        @Override
+        protected String searchG1(int maxl) {
+            String sol = super.searchG1(maxl);
+            if (solution != null) {
+                record(solLen);
+            }
+            return sol;
+        }
+
+        private void record(int len) {
+            if (improvements < improveProbes.length) {
+                improveProbes[improvements] = probe;
+                improveLength[improvements] = len;
+                improvements++;
+            }
+        }
+    }
+
+    private final TunedSearch search = new TunedSearch();
+    // oldest first, at most MAX_SAMPLES
+    private final ArrayDeque<Sample> samples = new ArrayDeque<Sample>(MAX_SAMPLES);
+    private double targetMillis;
+    private long solves = 0;
+
+    static final int MAX_DEPTH = 21;
+    static final long PROBE_MAX = 100000;
+
+    private int maxDepth = MAX_DEPTH;
+    private long probeMax = PROBE_MAX;
+    private long probeMin = 0;
+    private boolean overridden = false;
+
+    /**
+     * @param targetMillis
+     *      the 99th percentile latency target of a solve.
+     */
+    public SolveTuner(double targetMillis) {
+        this.targetMillis = targetMillis;
+    }
+
+    public synchronized void setTargetMillis(double targetMillis) {
+        this.targetMillis = targetMillis;
+        retune();
+    }
+
+    /**
+     * Uses the given arguments instead of the tuned ones. Solves are still recorded.
+     */
+    public synchronized void setOverride(int maxDepth, long probeMax, long probeMin) {
+        this.maxDepth = maxDepth;
+        this.probeMax = probeMax;
+        this.probeMin = Math.min(probeMin, probeMax);
+        this.overridden = true;
+    }
+
+    /**
+     * Goes back to the tuned arguments, or to the defaults while fewer than {@link #MIN_SAMPLES} are recorded.
+     */
+    public synchronized void clearOverride() {
+        overridden = false;
+        maxDepth = MAX_DEPTH;
+        probeMax = PROBE_MAX;
+        probeMin = 0;
+        retune();
+    }
+
+    public synchronized int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public synchronized long getProbeMax() {
+        return probeMax;
+    }
+
+    public synchronized long getProbeMin() {
+        return probeMin;
+    }
+
+    public synchronized int numberOfSamples() {
+        return samples.size();
+    }
+
+    /**
+     * Solves with the tuned arguments and records the solve.
+     *
+     * @return the same as {@link Search#solution(String, int, long, long, int)}.
+     */
+    public synchronized String solution(String facelets, int verbose) {
+        return solution(facelets, null, verbose);
+    }
+
+    /**
+     * Same as {@link #solution(String, int)} for a cube tracked move by move, see
+     * {@link Search#solution(LiveCubie, int, long, long, int)}.
+     */
+    public synchronized String solution(LiveCubie cube, int verbose) {
+        return solution(null, cube, verbose);
+    }
+
+    private String solution(String facelets, LiveCubie cube, int verbose) {
+        CoordCube.init(false);
+        boolean explore = solves++ % EXPLORE_PERIOD == EXPLORE_PERIOD - 1
+                          && !overridden && samples.size() >= MIN_SAMPLES;
+        long min = explore ? probeMax : probeMin;
+        search.improvements = 0;
+        long t = System.nanoTime();
+        String sol = cube == null
+                     ? search.solution(facelets, maxDepth, probeMax, min, verbose)
+                     : search.solution(cube, maxDepth, probeMax, min, verbose);
+        long probes = search.numberOfProbes();
+        if (sol.equals("Error 8") && !overridden) {
+            // the retry goes on where the first attempt stopped, so its improvements are recorded after them
+            long first = probes;
+            int improvements = search.improvements;
+            sol = cube == null
+                  ? search.solution(facelets, maxDepth, Long.MAX_VALUE, 0, verbose)
+                  : search.solution(cube, maxDepth, Long.MAX_VALUE, 0, verbose);
+            for (int i = improvements; i < search.improvements; i++) {
+                search.improveProbes[i] += first;
+            }
+            probes += search.numberOfProbes();
+        }
+        double millis = (System.nanoTime() - t) / 1e6;
+        if (!sol.startsWith("Error") || sol.equals("Error 8")) {
+            addSample(new Sample(millis, probes,
+                                 Arrays.copyOf(search.improveProbes, search.improvements),
+                                 Arrays.copyOf(search.improveLength, search.improvements)));
+        }
+        return sol;
+    }
+
+    private void addSample(Sample s) {
+        if (samples.size() == MAX_SAMPLES) {
+            samples.pollFirst();
+        }
+        samples.addLast(s);
+        retune();
+    }
+
+    private void retune() {
+        if (overridden || samples.size() < MIN_SAMPLES) {
+            return;
+        }
+        // millis = a + b * probes, least squares, plus the 99th percentile of the residuals
+        double n = samples.size();
+        double sx = 0;
+        double sy = 0;
+        double sxx = 0;
+        double sxy = 0;
+        for (Sample s : samples) {
+            sx += s.probes;
+            sy += s.millis;
+            sxx += (double) s.probes * s.probes;
+            sxy += s.probes * s.millis;
+        }
+        double var = sxx - sx * sx / n;
+        double b = var > 0 ? (sxy - sx * sy / n) / var : 0;
+        b = Math.max(b, 1e-6);
+        double a = (sy - b * sx) / n;
+        List<Double> residuals = new ArrayList<Double>();
+        List<Double> firstProbes = new ArrayList<Double>();
+        for (Sample s : samples) {
+            residuals.add(s.millis - a - b * s.probes);
+            firstProbes.add((double) (s.improveProbes.length == 0 ? s.probes + 1 : s.improveProbes[0]));
+        }
+        long max = (long) ((targetMillis - a - quantile(residuals, 0.99)) / b);
+        // fewer probes than the first solution needs would fail instead of being fast
+        max = Math.max(max, (long) quantile(firstProbes, 0.99));
+        max = Math.max(max, 1);
+
+        double best = meanLength(max);
+        long min = max;
+        for (long p = 0; p < max; p = p == 0 ? 1 : p * 2) {
+            if (meanLength(p) <= best) {
+                min = p;
+                break;
+            }
+        }
+        probeMax = max;
+        probeMin = min;
+    }
+
+    private double meanLength(long probe) {
+        double sum = 0;
+        int n = 0;
+        for (Sample s : samples) {
+            if (s.improveLength.length != 0) {
+                sum += s.lengthAt(probe);
+                n++;
+            }
+        }
+        return n == 0 ? 0 : Math.round(sum / n * 10) / 10.0;
+    }
+
+    static double quantile(List<Double> values, double q) {
+        Double[] arr = values.toArray(new Double[0]);
+        Arrays.sort(arr);
+        return arr[Math.min(arr.length - 1, (int) Math.ceil(q * arr.length) - 1)];
+    }
+
+    /**
+     * Writes the recorded solves.
+     */
+    public synchronized void save(Writer out) throws IOException {
+        out.write(HEADER + "\n");
+        for (Sample s : samples) {
+            StringBuffer sb = new StringBuffer();
+            sb.append(s.millis).append(' ').append(s.probes);
+            for (int i = 0; i < s.improveProbes.length; i++) {
+                sb.append(' ').append(s.improveProbes[i]).append(':').append(s.improveLength[i]);
+            }
+            out.write(sb.append('\n').toString());
+        }
+        out.flush();
+    }
+
+    /**
+     * Replaces the recorded solves by the ones written by {@link #save(Writer)}, and tunes from them.
+     */
+    public synchronized void load(BufferedReader in) throws IOException {
+        String line = in.readLine();
+        if (!HEADER.equals(line)) {
+            throw new IOException("Not a solve profile");
+        }
+        List<Sample> loaded = new ArrayList<Sample>();
+        while ((line = in.readLine()) != null) {
+            String[] tokens = line.trim().split(" ");
+            if (tokens.length < 2) {
+                continue;
+            }
+            try {
+                long[] improveProbes = new long[tokens.length - 2];
+                int[] improveLength = new int[tokens.length - 2];
+                for (int i = 2; i < tokens.length; i++) {
+                    int colon = tokens[i].indexOf(':');
+                    improveProbes[i - 2] = Long.parseLong(tokens[i].substring(0, colon));
+                    improveLength[i - 2] = Integer.parseInt(tokens[i].substring(colon + 1));
+                }
+                loaded.add(new Sample(Double.parseDouble(tokens[0]), Long.parseLong(tokens[1]),
+                                      improveProbes, improveLength));
+            } catch (RuntimeException e) {
+                throw new IOException("Invalid sample: " + line);
+            }
+        }
+        samples.clear();
+        samples.addAll(loaded.subList(Math.max(0, loaded.size() - MAX_SAMPLES), loaded.size()));
+        retune();
+    }
+}
@@ -0,0 +1,384 @@
+package com.mycompany.myrubikscube.cs.min2phase;
+
+/**
+ * Step by step solver of a layer by layer method: cross on D, the four F2L pairs, then the orientation and
+ * the permutation of the last layer.<br>
+ * The cross is solved optimally from an exact breadth-first table of the 4 cross edges (331,776 bytes).
+ * Each F2L pair is solved optimally by IDA* over the cross table and one 576-entry table per pair,
+ * choosing the pair with the shortest solution first.<br>
+ * The last layer stages are not optimal OLL and PLL. They are answered from the {@link LastLayer} table, whose
+ * algorithms solve a whole last layer case in up to 19 moves plus AUF: the permutation directly, the
+ * orientation as the shortest table entry which leaves the last layer oriented.<br>
+ * An instance is not thread safe.
+ */
+public class SubgoalSolver {
+
+    static final int N_LOC = 24;
+    static final int N_CROSS = N_LOC * N_LOC * N_LOC * N_LOC;
+    static final int N_PAIR = N_LOC * N_LOC;
+
+    /**
+     * location after a move, pos * 2 + ori for edges and pos * 3 + ori for corners.
+     */
+    static int[][] EdgeLocMove = null;
+    static int[][] CornLocMove = null;
+    static byte[] CrossPrun = null;
+    static byte[][] PairPrun = null;
+
+    private CubieCube cc = new CubieCube();
+    private CubieCube tmp = new CubieCube();
+    private int[] edgeLoc = new int[12];
+    private int[] cornLoc = new int[8];
+    private int pairsDone = 0;
+    private int[] move = new int[20];
+    private int pairTarget;
+
+    /**
+     * corner and edge locations of the four pairs at each depth of the pair search.
+     */
+    private int[][] cornStack = new int[move.length + 1][4];
+    private int[][] edgeStack = new int[move.length + 1][4];
+
+    public SubgoalSolver() {
+        CoordCube.init(false);
+        init();
+    }
+
+    static synchronized void init() {
+        if (CrossPrun != null) {
+            return;
+        }
+        int[][] edgeMove = new int[N_LOC][18];
+        int[][] cornMove = new int[N_LOC][18];
+        for (int m = 0; m < 18; m++) {
+            CubieCube mc = CubieCube.moveCube[m];
+            for (int q = 0; q < 12; q++) {
+                // the piece at position p moves to q
+                int p = mc.ea[q] >> 1;
+                for (int o = 0; o < 2; o++) {
+                    edgeMove[p * 2 + o][m] = q * 2 + (o ^ mc.ea[q] & 1);
+                }
+            }
+            for (int q = 0; q < 8; q++) {
+                int p = mc.ca[q] & 7;
+                for (int o = 0; o < 3; o++) {
+                    cornMove[p * 3 + o][m] = q * 3 + (o + (mc.ca[q] >> 3)) % 3;
+                }
+            }
+        }
+        EdgeLocMove = edgeMove;
+        CornLocMove = cornMove;
+
+        byte[][] pairPrun = new byte[4][];
+        for (int k = 0; k < 4; k++) {
+            pairPrun[k] = initPairPrun(k);
+        }
+        PairPrun = pairPrun;
+        CrossPrun = initCrossPrun();
+    }
+
+    static int crossIndex(int e0, int e1, int e2, int e3) {
+        return ((e0 * N_LOC + e1) * N_LOC + e2) * N_LOC + e3;
+    }
+
+    static byte[] initCrossPrun() {
+        byte[] prun = new byte[N_CROSS];
+        java.util.Arrays.fill(prun, (byte) -1);
+        prun[crossIndex(8, 10, 12, 14)] = 0;
+        int done = 1;
+        for (int depth = 0; done != 0; depth++) {
+            done = 0;
+            for (int i = 0; i < N_CROSS; i++) {
+                if (prun[i] != depth) {
+                    continue;
+                }
+                int e0 = i / (N_LOC * N_LOC * N_LOC);
+                int e1 = i / (N_LOC * N_LOC) % N_LOC;
+                int e2 = i / N_LOC % N_LOC;
+                int e3 = i % N_LOC;
+                for (int m = 0; m < 18; m++) {
+                    int idx = crossIndex(EdgeLocMove[e0][m], EdgeLocMove[e1][m], EdgeLocMove[e2][m], EdgeLocMove[e3][m]);
+                    if (prun[idx] == -1) {
+                        prun[idx] = (byte) (depth + 1);
+                        done++;
+                    }
+                }
+            }
+        }
+        return prun;
+    }
+
+    /**
+     * Pair k is the corner DFR, DLF, DBL or DRB (4 + k) with the edge FR, FL, BL or BR (8 + k).
+     */
+    static byte[] initPairPrun(int k) {
+        byte[] prun = new byte[N_PAIR];
+        java.util.Arrays.fill(prun, (byte) -1);
+        prun[(4 + k) * 3 * N_LOC + (8 + k) * 2] = 0;
+        int done = 1;
+        for (int depth = 0; done != 0; depth++) {
+            done = 0;
+            for (int i = 0; i < N_PAIR; i++) {
+                if (prun[i] != depth) {
+                    continue;
+                }
+                for (int m = 0; m < 18; m++) {
+                    int idx = CornLocMove[i / N_LOC][m] * N_LOC + EdgeLocMove[i % N_LOC][m];
+                    if (prun[idx] == -1) {
+                        prun[idx] = (byte) (depth + 1);
+                        done++;
+                    }
+                }
+            }
+        }
+        return prun;
+    }
+
+    /**
+     * Load a cube.
+     *
+     * @param facelets
+     *      the cube definition string, see {@link Search#solution(String, int, long, long, int)}
+     *
+     * @return 0 if the cube is solvable, otherwise the error code of {@link Tools#verify(String)}
+     */
+    public int setState(String facelets) {
+        Search checker = new Search();
+        int check = checker.verify(facelets);
+        if (check != 0) {
+            return check;
+        }
+        cc.copy(checker.cc);
+        pairsDone = 0;
+        updateLoc();
+        return 0;
+    }
+
+    /**
+     * Load a cube tracked move by move, which is always valid, so no facelets are built or checked.
+     */
+    public void setState(LiveCubie cube) {
+        cc.copy(cube.cc);
+        pairsDone = 0;
+        updateLoc();
+    }
+
+    private void updateLoc() {
+        for (int p = 0; p < 12; p++) {
+            edgeLoc[cc.ea[p] >> 1] = p * 2 + (cc.ea[p] & 1);
+        }
+        for (int p = 0; p < 8; p++) {
+            cornLoc[cc.ca[p] & 7] = p * 3 + (cc.ca[p] >> 3);
+        }
+    }
+
+    private String apply(int[] moves, int len) {
+        Util.Solution sol = new Util.Solution();
+        for (int i = 0; i < len; i++) {
+            CubieCube.CornMult(cc, CubieCube.moveCube[moves[i]], tmp);
+            CubieCube.EdgeMult(cc, CubieCube.moveCube[moves[i]], tmp);
+            cc.copy(tmp);
+            sol.appendSolMove(moves[i]);
+        }
+        updateLoc();
+        sol.setArgs(0, 0, sol.length);
+        return sol.toString();
+    }
+
+    private String apply(Util.Solution sol) {
+        int[] moves = new int[sol.length];
+        System.arraycopy(sol.moves, 0, moves, 0, sol.length);
+        return apply(moves, moves.length);
+    }
+
+    private int crossPrun(int e0, int e1, int e2, int e3) {
+        return CrossPrun[crossIndex(e0, e1, e2, e3)];
+    }
+
+    /**
+     * Solves the D cross optimally.
+     */
+    public String solveCross() {
+        int e0 = edgeLoc[4];
+        int e1 = edgeLoc[5];
+        int e2 = edgeLoc[6];
+        int e3 = edgeLoc[7];
+        int len = 0;
+        for (int dist = crossPrun(e0, e1, e2, e3); dist > 0; dist--) {
+            for (int m = 0; m < 18; m++) {
+                int n0 = EdgeLocMove[e0][m];
+                int n1 = EdgeLocMove[e1][m];
+                int n2 = EdgeLocMove[e2][m];
+                int n3 = EdgeLocMove[e3][m];
+                if (crossPrun(n0, n1, n2, n3) == dist - 1) {
+                    move[len++] = m;
+                    e0 = n0;
+                    e1 = n1;
+                    e2 = n2;
+                    e3 = n3;
+                    break;
+                }
+            }
+        }
+        return apply(move, len);
+    }
+
+    /**
+     * Solves the F2L pair with the shortest solution optimally, keeping the cross and the solved pairs.
+     * Call it after {@link #solveCross()}.
+     *
+     * @return the solution, or "" if all pairs are solved.
+     */
+    public String solvePair() {
+        int[] best = null;
+        int bestPair = -1;
+        for (int k = 0; k < 4; k++) {
+            if ((pairsDone >> k & 1) != 0) {
+                continue;
+            }
+            if (cornLoc[4 + k] == (4 + k) * 3 && edgeLoc[8 + k] == (8 + k) * 2) {
+                pairsDone |= 1 << k;
+                continue;
+            }
+            int maxLen = best == null ? move.length - 1 : best.length - 1;
+            int len = searchPair(k, maxLen);
+            if (len >= 0) {
+                best = new int[len];
+                System.arraycopy(move, 0, best, 0, len);
+                bestPair = k;
+            }
+        }
+        if (best == null) {
+            return "";
+        }
+        pairsDone |= 1 << bestPair;
+        return apply(best, best.length);
+    }
+
+    /**
+     * @return the optimal length of pair k, or -1 if longer than maxLen.
+     */
+    private int searchPair(int k, int maxLen) {
+        pairTarget = pairsDone | 1 << k;
+        int[] corn = cornStack[0];
+        int[] edge = edgeStack[0];
+        for (int j = 0; j < 4; j++) {
+            corn[j] = cornLoc[4 + j];
+            edge[j] = edgeLoc[8 + j];
+        }
+        int h = pairPrun(edgeLoc[4], edgeLoc[5], edgeLoc[6], edgeLoc[7], corn, edge);
+        for (int depth = h; depth <= maxLen; depth++) {
+            if (searchPair(edgeLoc[4], edgeLoc[5], edgeLoc[6], edgeLoc[7], corn, edge, depth, 0, -1)) {
+                return depth;
+            }
+        }
+        return -1;
+    }
+
+    private int pairPrun(int e0, int e1, int e2, int e3, int[] corn, int[] edge) {
+        int h = crossPrun(e0, e1, e2, e3);
+        for (int j = 0; j < 4; j++) {
+            if ((pairTarget >> j & 1) != 0) {
+                h = Math.max(h, PairPrun[j][corn[j] * N_LOC + edge[j]]);
+            }
+        }
+        return h;
+    }
+
+    private boolean searchPair(int e0, int e1, int e2, int e3, int[] corn, int[] edge, int maxl, int depth, int lm) {
+        if (maxl == 0) {
+            return true;
+        }
+        int[] cornx = cornStack[depth + 1];
+        int[] edgex = edgeStack[depth + 1];
+        for (int m = 0; m < 18; m++) {
+            if (lm >= 0 && (m / 3 == lm / 3 || m / 3 == lm / 3 - 3)) {
+                continue;
+            }
+            for (int j = 0; j < 4; j++) {
+                cornx[j] = CornLocMove[corn[j]][m];
+                edgex[j] = EdgeLocMove[edge[j]][m];
+            }
+            int n0 = EdgeLocMove[e0][m];
+            int n1 = EdgeLocMove[e1][m];
+            int n2 = EdgeLocMove[e2][m];
+            int n3 = EdgeLocMove[e3][m];
+            if (pairPrun(n0, n1, n2, n3, cornx, edgex) >= maxl) {
+                continue;
+            }
+            move[depth] = m;
+            if (searchPair(n0, n1, n2, n3, cornx, edgex, maxl - 1, depth + 1, m)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Orients the last layer, keeping the first two layers. Call it after the four pairs are solved.<br>
+     * The result is a last layer table algorithm, which may be much longer than the optimal OLL.
+     *
+     * @return the solution, or "Error 7" if the first two layers are not solved or the last layer table is
+     *      not available.
+     */
+    public String orientLastLayer() {
+        if (!LastLayer.isLastLayer(cc) || !LastLayer.isLoaded()) {
+            return "Error 7";
+        }
+        // S * A = Q^-1 with Q a PLL case <=> A solves Q * S, which is a last layer case.
+        CubieCube q = new CubieCube();
+        CubieCube x = new CubieCube();
+        byte[] cp = new byte[4];
+        byte[] ep = new byte[4];
+        Util.Solution best = null;
+        for (int cperm = 0; cperm < 24; cperm++) {
+            for (int eperm = 0; eperm < 24; eperm++) {
+                if (Util.getNParity(cperm, 4) != Util.getNParity(eperm, 4)) {
+                    continue;
+                }
+                Util.setNPerm(cp, cperm, 4, false);
+                Util.setNPerm(ep, eperm, 4, false);
+                for (int i = 0; i < 4; i++) {
+                    q.ca[i] = cp[i];
+                    q.ea[i] = (byte) (ep[i] << 1);
+                }
+                CubieCube.CornMult(q, cc, x);
+                CubieCube.EdgeMult(q, cc, x);
+                Util.Solution sol = LastLayer.lookup(x, 0);
+                if (sol != null && (best == null || sol.length < best.length)) {
+                    best = sol;
+                }
+            }
+        }
+        return best == null ? "Error 7" : apply(best);
+    }
+
+    /**
+     * Permutes the last layer. Call it after {@link #orientLastLayer()}.<br>
+     * The result is a last layer table algorithm, not necessarily the optimal PLL.
+     */
+    public String permuteLastLayer() {
+        if (!LastLayer.isLastLayer(cc) || !LastLayer.isLoaded()) {
+            return "Error 7";
+        }
+        Util.Solution sol = LastLayer.lookup(cc, 0);
+        return sol == null ? "Error 7" : apply(sol);
+    }
+
+    /**
+     * Solves the loaded cube step by step.
+     *
+     * @return cross, four F2L pairs, last layer orientation and permutation. A step which is already
+     *      solved is "".
+     */
+    public String[] solveAll() {
+        String[] ret = new String[7];
+        ret[0] = solveCross();
+        for (int i = 1; i <= 4; i++) {
+            ret[i] = solvePair();
+        }
+        ret[5] = orientLastLayer();
+        ret[6] = permuteLastLayer();
+        return ret;
+    }
+}
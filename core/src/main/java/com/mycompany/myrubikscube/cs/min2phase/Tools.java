@@ -178,7 +178,7 @@ public class Tools {
         return randomState(STATE_RANDOM, STATE_RANDOM, STATE_RANDOM, STATE_RANDOM, gen);
     }
 
-    private static int resolveOri(byte[] arr, int base) {
+    private static int resolveOri(byte[] arr, int base, Random gen) {
         int sum = 0, idx = 0, lastUnknown = -1;
         for (int i = 0; i < arr.length; i++) {
             if (arr[i] == -1) {
@@ -210,7 +210,7 @@ public class Tools {
         return cnt;
     }
 
-    private static int resolvePerm(byte[] arr, int cntU, int parity) {
+    private static int resolvePerm(byte[] arr, int cntU, int parity, Random gen) {
         if (arr == STATE_SOLVED) {
             return 0;
         } else if (arr == STATE_RANDOM) {
@@ -274,7 +274,7 @@ public class Tools {
             if (ep == STATE_SOLVED) {
                 epVal = parity = 0;
             } else {
-                parity = resolvePerm(ep, cntUE, -1);
+                parity = resolvePerm(ep, cntUE, -1, gen);
                 epVal = getNPerm(ep, 12);
             }
             if (cp == STATE_SOLVED) {
@@ -284,7 +284,7 @@ public class Tools {
                     cpVal = gen.nextInt(40320);
                 } while (Util.getNParity(cpVal, 8) != parity);
             } else {
-                resolvePerm(cp, cntUC, parity);
+                resolvePerm(cp, cntUC, parity, gen);
                 cpVal = getNPerm(cp, 8);
             }
         } else {    //ep != STATE_SOLVED
@@ -294,7 +294,7 @@ public class Tools {
                 cpVal = gen.nextInt(40320);
                 parity = Util.getNParity(cpVal, 8);
             } else {
-                parity = resolvePerm(cp, cntUC, -1);
+                parity = resolvePerm(cp, cntUC, -1, gen);
                 cpVal = getNPerm(cp, 8);
             }
             if (ep == STATE_RANDOM) {
@@ -302,20 +302,24 @@ public class Tools {
                     epVal = gen.nextInt(479001600);
                 } while (Util.getNParity(epVal, 12) != parity);
             } else {
-                resolvePerm(ep, cntUE, parity);
+                resolvePerm(ep, cntUE, parity, gen);
                 epVal = getNPerm(ep, 12);
             }
         }
         return Util.toFaceCube(
                    new CubieCube(
                        cpVal,
-                       co == STATE_RANDOM ? gen.nextInt(2187) : (co == STATE_SOLVED ? 0 : resolveOri(co, 3)),
+                       co == STATE_RANDOM ? gen.nextInt(2187) : (co == STATE_SOLVED ? 0 : resolveOri(co, 3, gen)),
                        epVal,
-                       eo == STATE_RANDOM ? gen.nextInt(2048) : (eo == STATE_SOLVED ? 0 : resolveOri(eo, 2))));
+                       eo == STATE_RANDOM ? gen.nextInt(2048) : (eo == STATE_SOLVED ? 0 : resolveOri(eo, 2, gen))));
     }
 
 
     public static String randomLastLayer() {
+        return randomLastLayer(gen);
+    }
+
+    public static String randomLastLayer(Random gen) {
         return randomState(
                    new byte[] { -1, -1, -1, -1, 4, 5, 6, 7},
                    new byte[] { -1, -1, -1, -1, 0, 0, 0, 0},
@@ -324,6 +328,10 @@ public class Tools {
     }
 
     public static String randomLastSlot() {
+        return randomLastSlot(gen);
+    }
+
+    public static String randomLastSlot(Random gen) {
         return randomState(
                    new byte[] { -1, -1, -1, -1, -1, 5, 6, 7},
                    new byte[] { -1, -1, -1, -1, -1, 0, 0, 0},
@@ -332,6 +340,10 @@ public class Tools {
     }
 
     public static String randomZBLastLayer() {
+        return randomZBLastLayer(gen);
+    }
+
+    public static String randomZBLastLayer(Random gen) {
         return randomState(
                    new byte[] { -1, -1, -1, -1, 4, 5, 6, 7},
                    new byte[] { -1, -1, -1, -1, 0, 0, 0, 0},
@@ -340,6 +352,10 @@ public class Tools {
     }
 
     public static String randomCornerOfLastLayer() {
+        return randomCornerOfLastLayer(gen);
+    }
+
+    public static String randomCornerOfLastLayer(Random gen) {
         return randomState(
                    new byte[] { -1, -1, -1, -1, 4, 5, 6, 7},
                    new byte[] { -1, -1, -1, -1, 0, 0, 0, 0},
@@ -348,6 +364,10 @@ public class Tools {
     }
 
     public static String randomEdgeOfLastLayer() {
+        return randomEdgeOfLastLayer(gen);
+    }
+
+    public static String randomEdgeOfLastLayer(Random gen) {
         return randomState(
                    STATE_SOLVED,
                    STATE_SOLVED,
@@ -356,6 +376,10 @@ public class Tools {
     }
 
     public static String randomCrossSolved() {
+        return randomCrossSolved(gen);
+    }
+
+    public static String randomCrossSolved(Random gen) {
         return randomState(
                    STATE_RANDOM,
                    STATE_RANDOM,
@@ -364,6 +388,10 @@ public class Tools {
     }
 
     public static String randomEdgeSolved() {
+        return randomEdgeSolved(gen);
+    }
+
+    public static String randomEdgeSolved(Random gen) {
         return randomState(
                    STATE_RANDOM,
                    STATE_RANDOM,
@@ -372,6 +400,10 @@ public class Tools {
     }
 
     public static String randomCornerSolved() {
+        return randomCornerSolved(gen);
+    }
+
+    public static String randomCornerSolved(Random gen) {
         return randomState(
                    STATE_SOLVED,
                    STATE_SOLVED,
@@ -379,6 +411,51 @@ public class Tools {
                    STATE_RANDOM, gen);
     }
 
+    /**
+     * A random state generator which only draws from the given random source.
+     */
+    public interface StateGenerator {
+        String generate(Random gen);
+    }
+
+    public static final StateGenerator RANDOM_CUBE = new StateGenerator() {
+        public String generate(Random gen) {
+            return randomCube(gen);
+        }
+    };
+
+    /**
+     * Generates n random states on all available processors.<br>
+     * The i-th state is generated from its own random stream, seeded by the seed and i,
+     * so the result only depends on the seed.
+     *
+     * @param n number of states.
+     * @param seed the seed of all random streams.
+     * @param generator e.g. {@link #RANDOM_CUBE}, or a wrapper of {@link #randomLastLayer(Random)}.
+     *
+     * @return n states in the string representation.
+     */
+    public static String[] randomStates(int n, long seed, StateGenerator generator) {
+        return randomStates(n, seed, generator, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Same as {@link #randomStates(int, long, StateGenerator)} on the given number of threads.
+     */
+    public static String[] randomStates(int n, final long seed, final StateGenerator generator, int nThreads) {
+        final String[] ret = new String[n];
+        Util.parallelRange(n, nThreads, new Util.RangeTask() {
+            public void run(int from, int to) {
+                Random gen = new Random();
+                for (int i = from; i < to; i++) {
+                    gen.setSeed(Util.mixSeed(seed, i));
+                    ret[i] = generator.generate(gen);
+                }
+            }
+        });
+        return ret;
+    }
+
     public static String superFlip() {
         return Util.toFaceCube(new CubieCube(0, 0, 0, 2047));
     }
@@ -1,5 +1,13 @@
 package com.mycompany.myrubikscube.cs.min2phase;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
 class Util {
     //Moves
     static final byte Ux1 = 0;
@@ -174,6 +182,26 @@ class Util {
         }
     }
 
+    /**
+     * Parses a solution string, e.g. "R2 U' F ", into move indices. Unknown tokens are skipped.
+     */
+    static int[] str2moves(String s) {
+        String[] tokens = s.trim().split("\\s+");
+        int[] moves = new int[tokens.length];
+        int len = 0;
+        for (String token : tokens) {
+            for (int m = 0; m < 18; m++) {
+                if (move2str[m].trim().equals(token)) {
+                    moves[len++] = m;
+                    break;
+                }
+            }
+        }
+        int[] ret = new int[len];
+        System.arraycopy(moves, 0, ret, 0, len);
+        return ret;
+    }
+
     static void toCubieCube(byte[] f, CubieCube ccRet) {
         byte ori;
         for (int i = 0; i < 8; i++) {
@@ -309,6 +337,80 @@ class Util {
         }
     }
 
+    interface RangeTask {
+        void run(int from, int to);
+    }
+
+    private static ExecutorService workerPool;
+
+    /**
+     * Daemon threads shared by all parallel batches. Idle threads are kept for a while, so the
+     * thread-local scratch objects of the workers survive between batches.
+     */
+    static synchronized ExecutorService getWorkerPool() {
+        if (workerPool == null) {
+            workerPool = Executors.newCachedThreadPool(new ThreadFactory() {
+                int count = 0;
+                public synchronized Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "min2phase-worker-" + count++);
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        return workerPool;
+    }
+
+    /**
+     * Split [0, n) into one contiguous chunk per available core and run task on each chunk.
+     * Returns after all chunks are finished.
+     */
+    static void parallelRange(int n, final RangeTask task) {
+        parallelRange(n, Runtime.getRuntime().availableProcessors(), task);
+    }
+
+    static void parallelRange(int n, int nThreads, final RangeTask task) {
+        nThreads = Math.max(1, Math.min(n, nThreads));
+        if (nThreads == 1) {
+            task.run(0, n);
+            return;
+        }
+        List<Future<?>> futures = new ArrayList<Future<?>>(nThreads);
+        for (int i = 0; i < nThreads; i++) {
+            final int from = (int) ((long) n * i / nThreads);
+            final int to = (int) ((long) n * (i + 1) / nThreads);
+            futures.add(getWorkerPool().submit(new Runnable() {
+                public void run() {
+                    task.run(from, to);
+                }
+            }));
+        }
+        try {
+            for (Future<?> f : futures) {
+                f.get();
+            }
+        } catch (InterruptedException e) {
+            for (Future<?> f : futures) {
+                f.cancel(true);
+            }
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * SplitMix64 finalizer of seed + stream, used to derive independent, reproducible seeds for
+     * the random stream of each scramble or worker.
+     */
+    static long mixSeed(long seed, long stream) {
+        long z = seed + (stream + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
     static {
         for (int i = 0; i < 18; i++) {
             std2ud[ud2std[i]] = i;
@@ -5,6 +5,12 @@ import com.mycompany.myrubikscube.graphics.Axis
 import com.mycompany.myrubikscube.graphics.Direction
 import java.util.ArrayList
 
+/**
+ * A sequence of moves, stored as [MoveCode]s, two bytes per step.
+ *
+ * Playback through [getNextStep] reuses one [Rotation], so it allocates nothing per step. Two
+ * algorithms are equal when they have the same steps, wherever their playback is.
+ */
 class Algorithm {
     companion object {
         private const val TAG = "rubik-algo"
@@ -12,16 +18,36 @@ class Algorithm {
         fun rotateWhole(axis: Axis, direction: Direction, cubeSize: Int, count: Int): Algorithm {
             val algo = Algorithm()
             for (i in 0 until count) {
-                val rot = Rotation(axis, direction, 0, cubeSize)
-                algo.addStep(rot)
+                algo.addStep(axis, direction, 0, cubeSize)
             }
             return algo
         }
     }
 
-    val steps = ArrayList<Rotation>()
+    private var codes = ShortArray(8)
     private var currentPosition = 0
 
+    // Returned by getNextStep, valid until the next call
+    private val mStep = Rotation()
+
+    /**
+     * Number of steps
+     */
+    var length = 0
+        private set
+
+    /**
+     * Decoded copies of the steps
+     */
+    val steps: List<Rotation>
+        get() {
+            val list = ArrayList<Rotation>(length)
+            for (i in 0 until length) {
+                list.add(MoveCode.decode(codes[i]))
+            }
+            return list
+        }
+
     constructor()
 
     constructor(rotations: List<Rotation>) : this() {
@@ -30,45 +56,132 @@ class Algorithm {
         }
     }
 
+    private constructor(codes: ShortArray, length: Int) {
+        this.codes = codes
+        this.length = length
+    }
+
     private fun reset() {
-        steps.clear()
+        length = 0
         currentPosition = 0
     }
 
+    fun code(index: Int): Short {
+        if (index >= length) {
+            throw IndexOutOfBoundsException("Step $index of $length")
+        }
+        return codes[index]
+    }
+
+    fun toCodes(): ShortArray = codes.copyOf(length)
+
     fun addStep(axis: Axis, direction: Direction, face: Int, faceCount: Int) {
-        addStep(Rotation(axis, direction, face, faceCount))
+        addCode(MoveCode.encode(axis, direction, face, faceCount))
     }
 
     fun addStep(axis: Axis, direction: Direction, face: Int) {
-        addStep(Rotation(axis, direction, face))
+        addCode(MoveCode.encode(axis, direction, face, 1))
     }
 
     fun addStep(rotation: Rotation) {
-        steps.add(rotation)
+        addCode(MoveCode.encode(rotation))
+    }
+
+    fun addCode(code: Short) {
+        if (length == codes.size) {
+            codes = codes.copyOf(maxOf(8, length * 2))
+        }
+        codes[length++] = code
     }
 
     fun append(algo: Algorithm?) {
         if (algo == null) return
-        for (rot in algo.steps) {
-            addStep(rot.duplicate())
+        if (length + algo.length > codes.size) {
+            codes = codes.copyOf(maxOf(length + algo.length, length * 2))
         }
+        System.arraycopy(algo.codes, 0, codes, length, algo.length)
+        length += algo.length
     }
 
     fun repeatLastStep() {
-        if (steps.isNotEmpty()) {
-            addStep(steps[steps.size - 1].duplicate())
+        if (length > 0) {
+            addCode(codes[length - 1])
+        }
+    }
+
+    /**
+     * The steps undoing this algorithm: reversed, each turned the other way
+     */
+    fun inverse(): Algorithm {
+        val inv = ShortArray(length)
+        for (i in 0 until length) {
+            inv[i] = MoveCode.inverse(codes[length - 1 - i])
         }
+        return Algorithm(inv, length)
+    }
+
+    /**
+     * This algorithm followed by [other], as a new one
+     */
+    fun concat(other: Algorithm): Algorithm {
+        val all = codes.copyOf(length + other.length)
+        System.arraycopy(other.codes, 0, all, length, other.length)
+        return Algorithm(all, length + other.length)
+    }
+
+    /**
+     * Steps [from] (inclusive) to [to] (exclusive), as a new algorithm
+     */
+    fun slice(from: Int, to: Int): Algorithm {
+        if (from < 0 || to > length || from > to) {
+            throw IndexOutOfBoundsException("Slice $from until $to of $length")
+        }
+        return Algorithm(codes.copyOfRange(from, to), to - from)
+    }
+
+    /**
+     * All steps composed into one facelet permutation for a cube of the given size, see
+     * [FaceletState.Permutations.compile]. Null if the algorithm re-orients a skewed cube.
+     */
+    fun compile(sizeX: Int, sizeY: Int, sizeZ: Int): IntArray? {
+        return FaceletState.permutations(sizeX, sizeY, sizeZ).compile(codes, length)
+    }
+
+    /**
+     * The fewest quarter turns doing the same on a cube of the given size: inverse turns cancel,
+     * repeated ones merge, and turns of parallel layers are regrouped, see [MoveSimplifier]
+     */
+    fun simplify(sizeX: Int, sizeY: Int, sizeZ: Int): Algorithm {
+        return MoveSimplifier.simplify(codes, length, sizeX, sizeY, sizeZ)
     }
 
     fun isDone(): Boolean {
-        return currentPosition >= steps.size
+        return currentPosition >= length
     }
 
+    /**
+     * The next step to play. The same [Rotation] is returned each time, set up for the step.
+     */
     fun getNextStep(): Rotation? {
-        return if (currentPosition >= steps.size) {
-            Log.w(TAG, "No more steps: $currentPosition, ${steps.size}")
+        return if (currentPosition >= length) {
+            Log.w(TAG, "No more steps: $currentPosition, $length")
             null
-        } else steps[currentPosition++].duplicate()
+        } else MoveCode.decode(codes[currentPosition++], mStep)
+    }
+
+    override fun equals(other: Any?): Boolean {
+        if (other !is Algorithm || other.length != length) return false
+        for (i in 0 until length) {
+            if (codes[i] != other.codes[i]) return false
+        }
+        return true
     }
-}
 
+    override fun hashCode(): Int {
+        var h = 1
+        for (i in 0 until length) {
+            h = 31 * h + codes[i]
+        }
+        return h
+    }
+}
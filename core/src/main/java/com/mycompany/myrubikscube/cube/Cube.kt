@@ -5,13 +5,14 @@ import com.mycompany.myrubikscube.graphics.Axis
 import com.mycompany.myrubikscube.graphics.Direction
 import java.security.InvalidParameterException
 import java.util.ArrayList
-import kotlin.math.max
 
 /**
  * This class handles cube's definition. It creates all squares, faces and puts them in appropriate
- * lists for each axis. It also takes care of updating the colors of squares according to user
- * specified rotation. It doesn't care about drawing the cube. You should extend this class
- * rather than using it directly.
+ * lists for each axis. The colors live in a [FaceletState], which applies the user specified
+ * rotations; the squares read their color from it. It doesn't care about drawing the cube and
+ * holds no graphics resources, so it can be created without a GL context; the libGDX geometry
+ * lives in [com.mycompany.myrubikscube.graphics.CubeView]. You should extend this class rather
+ * than using it directly.
  */
 open class Cube(
     protected var mSizeX: Int,
@@ -93,154 +94,6 @@ open class Cube(
             }
         }
 
-        /**
-         * Rotate the colors in the border. This is the first part of rotating a layer.
-         */
-        private fun rotateRingColors(squareList: ArrayList<ArrayList<Square>>, dir: Direction, size: Int) {
-            val tempColors = ArrayList<Int>(size)
-            val workingCopy: ArrayList<ArrayList<Square>>
-
-            if (dir == Direction.COUNTER_CLOCKWISE) {
-                // input is in clockwise order
-                workingCopy = squareList
-            } else {
-                // reverse and rotate
-                workingCopy = ArrayList(squareList.size)
-                for (i in 0 until CUBE_SIDES) {
-                    workingCopy.add(squareList[CUBE_SIDES - 1 - i])
-                }
-            }
-
-            var src = workingCopy[0]
-            for (i in 0 until size) {
-                tempColors.add(src[i].color)
-            }
-
-            for (i in 0 until (CUBE_SIDES - 1)) {
-                val dst = workingCopy[i]
-                src = workingCopy[i + 1]
-                for (j in 0 until size) {
-                    dst[j].color = src[j].color
-                }
-            }
-
-            val dst = workingCopy[CUBE_SIDES - 1]
-            for (i in 0 until size) {
-                dst[i].color = tempColors[i]
-            }
-        }
-
-        /**
-         * Rotate colors of a given face. This is the second part of rotating a face.
-         * This function calls itself recursively to rotate inner squares.
-         *
-         * We cannot use rotateMatrix functions here as we need an in-place update of colors.
-         */
-        private fun rotateFaceColors(squares: ArrayList<Square>, direction: Direction, size: Int) {
-            val tempColors = ArrayList<Int>(size)
-            if (direction == Direction.COUNTER_CLOCKWISE) {
-                for (i in 0 until (size - 1)) {
-                    tempColors.add(squares[i].color)
-                    squares[i].color = squares[i * size + (size - 1)].color
-                }
-                for (i in 0 until (size - 1)) {
-                    squares[i * size + (size - 1)].color =
-                        squares[size * size - 1 - i].color
-                }
-                for (i in 0 until (size - 1)) {
-                    squares[size * size - 1 - i].color =
-                        squares[size * (size - 1 - i)].color
-                }
-                for (i in 0 until (size - 1)) {
-                    squares[size * (size - 1 - i)].color = tempColors[i]
-                }
-            } else {
-                for (i in 0 until (size - 1)) {
-                    tempColors.add(squares[i].color)
-                    squares[i].color = squares[size * (size - 1 - i)].color
-                }
-                for (i in 0 until (size - 1)) {
-                    squares[size * (size - 1 - i)].color =
-                        squares[size * size - 1 - i].color
-                }
-                for (i in 0 until (size - 1)) {
-                    squares[size * size - 1 - i].color =
-                        squares[i * size + (size - 1)].color
-                }
-                for (i in 0 until (size - 1)) {
-                    squares[i * size + (size - 1)].color = tempColors[i]
-                }
-            }
-
-            if (size > 3) {
-                val subset = ArrayList<Square>(size - 2)
-                for (i in 1 until size - 1) {
-                    for (j in 1 until size - 1) {
-                        subset.add(squares[i * size + j])
-                    }
-                }
-                rotateFaceColors(subset, direction, size - 2)
-            }
-        }
-
-        /**
-         * If not symmetric, rotate 180' along the given axis
-         */
-        private fun skewedRotateRingColors(squareList: ArrayList<ArrayList<Square>>) {
-            // swap 0 <-> 2, 1 <-> 3
-            val src0 = squareList[0]
-            val dst0 = squareList[2]
-            for (i in src0.indices) {
-                val color = src0[i].color
-                src0[i].color = dst0[i].color
-                dst0[i].color = color
-            }
-            val src1 = squareList[1]
-            val dst1 = squareList[3]
-            for (i in src1.indices) {
-                val color = src1[i].color
-                src1[i].color = dst1[i].color
-                dst1[i].color = color
-            }
-        }
-
-        private fun skewedRotateFaceColors(squares: ArrayList<Square>, w: Int, h: Int) {
-            if (w == 1 || h == 1) {
-                val len = max(w, h)
-                for (i in 0 until (len / 2)) {
-                    val src = squares[i]
-                    val dst = squares[len - 1 - i]
-                    val color = src.color
-                    src.color = dst.color
-                    dst.color = color
-                }
-                return
-            }
-            // 2D 180-degree reversal logic
-            for (i in 0 until (w - 1)) {
-                val src = squares[i]
-                val dst = squares[w * h - 1 - i]
-                val color = src.color
-                src.color = dst.color
-                dst.color = color
-            }
-            for (i in 1 until h) {
-                val src = squares[i * w]
-                val dst = squares[w * (h - i) - 1]
-                val color = src.color
-                src.color = dst.color
-                dst.color = color
-            }
-            if (w + h <= 6 || w < 3 || h < 3) return
-            val subset = ArrayList<Square>()
-            for (i in 1 until (w - 1)) {
-                for (j in 1 until (h - 1)) {
-                    subset.add(squares[j * w + i])
-                }
-            }
-            skewedRotateFaceColors(subset, w - 2, h - 2)
-        }
-
         /**
          * Utility to rotate a matrix in 90-degree increments (used for rotateCubeX, etc.)
          */
@@ -288,6 +141,26 @@ open class Cube(
     protected var mYaxisLayers = ArrayList<ArrayList<Piece>>()
     protected var mZaxisLayers = ArrayList<ArrayList<Piece>>()
 
+    // Piece of each square by id, used while creating pieces
+    private var mPieceOfSquare = arrayOfNulls<Piece>(0)
+
+    // By square id, rebuilt with the faces: face << 24 | row << 12 | column, and layer per axis
+    private var mPositionOfSquare = IntArray(0)
+    private var mLayerOfSquare = Array(3) { IntArray(0) }
+
+    /**
+     * Colors of all squares, see [FaceletState]
+     */
+    protected val mFacelets = FaceletState(mSizeX, mSizeY, mSizeZ)
+
+    /**
+     * Solved faces, correct pieces and hash of [mFacelets], see [StateTracker]
+     */
+    protected val mTracker = StateTracker(mFacelets)
+
+    // Color each face was created with, following the faces through whole cube rotations
+    private var mHomeColors = intArrayOf(COLOR_FRONT, COLOR_RIGHT, COLOR_BACK, COLOR_LEFT, COLOR_TOP, COLOR_BOTTOM)
+
     init {
         Log.w(tag, String.format("Cube Dimen: %d %d %d", mSizeX, mSizeY, mSizeZ))
         val maxSize = maxOf(mSizeX, mSizeY, mSizeZ)
@@ -299,6 +172,33 @@ open class Cube(
         createArrays()
         createAllSquares()
         createFaces()
+        bindSquares()
+    }
+
+    /**
+     * Move the initial colors of the squares into the facelet state
+     */
+    private fun bindSquares() {
+        for (i in 0 until FACE_COUNT) {
+            val face = mAllFaces[i] ?: continue
+            val offset = mFacelets.faceOffset(i)
+            for (j in face.indices) {
+                mFacelets.setColor(offset + j, face[j].color)
+                face[j].bind(mFacelets, offset + j)
+            }
+        }
+        rebuildTracker()
+    }
+
+    private fun rebuildTracker() {
+        val pieceOf = IntArray(mFacelets.count)
+        for (p in mAllPieces.indices) {
+            for (sq in mAllPieces[p].mSquares) {
+                pieceOf[sq.index] = p
+            }
+        }
+        mTracker.rebuild(pieceOf, mAllPieces.size, mHomeColors)
+        mFacelets.tracker = mTracker
     }
 
     /**
@@ -343,6 +243,9 @@ open class Cube(
         createRightSquares(COLOR_RIGHT)
         createTopSquares(COLOR_TOP)
         createBottomSquares(COLOR_BOTTOM)
+        for (i in mAllSquares.indices) {
+            mAllSquares[i].id = i
+        }
     }
 
     /**
@@ -537,13 +440,8 @@ open class Cube(
      */
     private fun createPieceWithSquares(squares: ArrayList<Square>, type: Piece.PieceType): Piece {
         var piece: Piece? = null
-        for (p in mAllPieces) {
-            for (sq in squares) {
-                if (sq in p.mSquares) {
-                    piece = p
-                    break
-                }
-            }
+        for (sq in squares) {
+            piece = mPieceOfSquare[sq.id]
             if (piece != null) break
         }
         if (piece == null) {
@@ -552,6 +450,7 @@ open class Cube(
         }
         for (sq in squares) {
             piece.addSquare(sq)
+            mPieceOfSquare[sq.id] = piece
         }
         return piece
     }
@@ -561,8 +460,8 @@ open class Cube(
      * corresponding to each dimension (m*axisFaceList). A piece can have anywhere from
      * one to six squares (in a 1x1x1 cube).
      *
-     * To avoid creating duplicate pieces, we store all pieces in a separate list and search it
-     * for any existing pieces with the given square before creating a new one.
+     * To avoid creating duplicate pieces, we remember the piece of each square and reuse an
+     * existing piece with one of the given squares before creating a new one.
      *
      * The order of pieces is used in solutions and should not be changed. The outer layers follow
      * the same order as the corresponding face.
@@ -576,6 +475,7 @@ open class Cube(
         mAllFaces[FACE_BOTTOM] = mBottomSquares
 
         mAllPieces.clear()
+        mPieceOfSquare = arrayOfNulls(mAllSquares.size)
         mXaxisLayers.clear()
         mYaxisLayers.clear()
         mZaxisLayers.clear()
@@ -791,9 +691,58 @@ open class Cube(
         }
         mZaxisLayers.add(frontFace)
 
+        indexSquares()
         Log.w(tag, "total pieces: ${mAllPieces.size}")
     }
 
+    /**
+     * Fill the position and layers of each square, in one pass over the faces and the layers
+     */
+    private fun indexSquares() {
+        mPositionOfSquare = IntArray(mAllSquares.size)
+        for (f in 0 until FACE_COUNT) {
+            val face = mAllFaces[f] ?: continue
+            val width = if (f == FACE_LEFT || f == FACE_RIGHT) mSizeZ else mSizeX
+            for (j in face.indices) {
+                mPositionOfSquare[face[j].id] = f shl 24 or (j / width shl 12) or (j % width)
+            }
+        }
+        val allLayers = arrayOf(mXaxisLayers, mYaxisLayers, mZaxisLayers)
+        for (axis in 0 until 3) {
+            val layerOf = IntArray(mAllSquares.size)
+            val layers = allLayers[axis]
+            // backwards so that the first layer wins when a 1-layer axis lists it twice
+            for (i in layers.indices.reversed()) {
+                for (piece in layers[i]) {
+                    for (sq in piece.mSquares) {
+                        layerOf[sq.id] = i
+                    }
+                }
+            }
+            mLayerOfSquare[axis] = layerOf
+        }
+    }
+
+    /**
+     * Face of [square], one of the FACE_* constants
+     */
+    fun faceOf(square: Square): Int = mPositionOfSquare[square.id] ushr 24
+
+    /**
+     * Row of [square] in its face list, from the top
+     */
+    fun rowOf(square: Square): Int = mPositionOfSquare[square.id] shr 12 and 0xfff
+
+    /**
+     * Column of [square] in its face list, from the left
+     */
+    fun columnOf(square: Square): Int = mPositionOfSquare[square.id] and 0xfff
+
+    /**
+     * Layer of [square] along [axis], as used by rotate
+     */
+    fun layerOf(axis: Axis, square: Square): Int = mLayerOfSquare[axis.ordinal][square.id]
+
     val frontFaceZ: Float
         get() = (squareSize + GAP) * (mSizeZ / 2.0f)
 
@@ -848,131 +797,7 @@ open class Cube(
             )
         }
 
-        var w = 0
-        var h = 0
-        var faceSquares: ArrayList<Square>? = null
-        var oppositeFace: ArrayList<Square>? = null
-
-        // This list holds the squares from the sides of the layer being rotated
-        val squareList = ArrayList<ArrayList<Square>>(CUBE_SIDES)
-        repeat(CUBE_SIDES) {
-            squareList.add(ArrayList())
-        }
-
-        when (axis) {
-            Axis.X_AXIS -> {
-                for (i in 0 until mSizeY) {
-                    squareList[0].add(mFrontSquares[mSizeX * i + face])
-                    squareList[2].add(
-                        mBackSquares[(mSizeY - 1 - i) * mSizeX + (mSizeX - 1 - face)]
-                    )
-                }
-                for (i in 0 until mSizeZ) {
-                    squareList[1].add(mTopSquares[mSizeX * i + face])
-                    squareList[3].add(mBottomSquares[mSizeX * i + face])
-                }
-                if (face == 0) {
-                    faceSquares = mLeftSquares
-                } else if (face == mSizeX - 1) {
-                    faceSquares = mRightSquares
-                }
-                if (mSizeX == 1) {
-                    oppositeFace = mRightSquares
-                }
-                w = mSizeZ
-                h = mSizeY
-            }
-
-            Axis.Y_AXIS -> {
-                for (i in 0 until mSizeX) {
-                    squareList[0].add(
-                        mFrontSquares[(mSizeY - 1 - face) * mSizeX + i]
-                    )
-                    squareList[2].add(
-                        mBackSquares[(mSizeY - 1 - face) * mSizeX + i]
-                    )
-                }
-                for (i in 0 until mSizeZ) {
-                    squareList[1].add(
-                        mLeftSquares[(mSizeY - 1 - face) * mSizeZ + i]
-                    )
-                    squareList[3].add(
-                        mRightSquares[(mSizeY - 1 - face) * mSizeZ + i]
-                    )
-                }
-                if (face == 0) {
-                    faceSquares = mBottomSquares
-                } else if (face == mSizeY - 1) {
-                    faceSquares = mTopSquares
-                }
-                if (mSizeY == 1) {
-                    oppositeFace = mTopSquares
-                }
-                w = mSizeX
-                h = mSizeZ
-            }
-
-            Axis.Z_AXIS -> {
-                for (i in 0 until mSizeX) {
-                    squareList[0].add(mTopSquares[mSizeX * face + i])
-                    squareList[2].add(
-                        mBottomSquares[
-                            mSizeX * (mSizeZ - 1 - face) + (mSizeX - 1 - i)
-                        ]
-                    )
-                }
-                for (i in 0 until mSizeY) {
-                    squareList[1].add(
-                        mRightSquares[mSizeZ * i + (mSizeZ - 1 - face)]
-                    )
-                    squareList[3].add(
-                        mLeftSquares[mSizeZ * (mSizeY - 1 - i) + face]
-                    )
-                }
-                if (face == 0) {
-                    faceSquares = mBackSquares
-                } else if (face == mSizeZ - 1) {
-                    faceSquares = mFrontSquares
-                }
-                if (mSizeZ == 1) {
-                    oppositeFace = mFrontSquares
-                }
-                w = mSizeX
-                h = mSizeY
-            }
-        }
-
-        val symmetric = isSymmetricAroundAxis(axis)
-        if (symmetric) {
-            val size = if (axis == Axis.X_AXIS) mSizeY else mSizeX
-            rotateRingColors(squareList, direction, size)
-
-            // If the rotating face is on the edge, rotate that face's squares
-            if (faceSquares != null) {
-                if (face == 0) {
-                    // Lower layers store colors in opposite direction, so invert direction
-                    val inverseDirection = if (direction == Direction.CLOCKWISE)
-                        Direction.COUNTER_CLOCKWISE else Direction.CLOCKWISE
-                    rotateFaceColors(faceSquares, inverseDirection, size)
-                } else {
-                    // It's the positive edge of the axis (front/top/right), rotate as is
-                    rotateFaceColors(faceSquares, direction, size)
-                }
-            }
-            // If dimension is 1, the opposite face also needs rotating
-            if (oppositeFace != null) {
-                rotateFaceColors(oppositeFace, direction, size)
-            }
-        } else {
-            // If not symmetric, effectively rotate 180'
-            skewedRotateRingColors(squareList)
-            if (faceSquares != null) {
-                skewedRotateFaceColors(faceSquares, w, h)
-            }
-            if (oppositeFace != null) {
-                skewedRotateFaceColors(oppositeFace, w, h)
-            }
-        }
+        mFacelets.turn(axis, direction, face)
     }
 
     /**
@@ -1078,14 +903,38 @@ open class Cube(
     }
 
     private fun updateSquareFaces() {
+        // Squares keep their colors, so the facelets follow them to their new places
+        val perms = FaceletState.permutations(mSizeX, mSizeY, mSizeZ)
+        val source = IntArray(perms.count)
+        for (i in 0 until FACE_COUNT) {
+            val face = mAllFaces[i] ?: continue
+            for (j in face.indices) {
+                source[perms.faceOffset[i] + j] = face[j].index
+            }
+        }
+        mFacelets.relayout(mSizeX, mSizeY, mSizeZ, source)
+        val homeColors = IntArray(FACE_COUNT)
+        for (i in 0 until FACE_COUNT) {
+            val face = mAllFaces[i] ?: continue
+            homeColors[i] = mHomeColors[face[0].face]
+        }
+        mHomeColors = homeColors
         for (i in 0 until FACE_COUNT) {
             val face = mAllFaces[i] ?: continue
-            for (sq in face) {
-                sq.face = i
+            for (j in face.indices) {
+                face[j].face = i
+                face[j].bind(mFacelets, perms.faceOffset[i] + j)
             }
         }
+        rebuildTracker()
     }
 
+    /**
+     * Changes whenever a color changes, see [FaceletState.version]
+     */
+    val stateVersion: Long
+        get() = mFacelets.version
+
     val sizeX: Int
         get() = mSizeX
     val sizeY: Int
@@ -0,0 +1,575 @@
+package com.mycompany.myrubikscube.cube
+
+import com.mycompany.myrubikscube.graphics.Axis
+import com.mycompany.myrubikscube.graphics.Direction
+import kotlin.math.max
+
+/**
+ * Logical colour state of an NxMxK cube, one byte per facelet.
+ *
+ * Facelets are stored face by face in the order of the FACE_* constants of [Cube], and inside a face
+ * in the same top-left to bottom-right order as the face lists of [Cube]. Each byte is an index into
+ * a small palette of RGBA colours.
+ *
+ * A layer turn is applied as a precomputed permutation of the facelet indices, see [Permutations],
+ * which is shared by all cubes of the same size. A turn only touches the facelets of the layer and
+ * allocates nothing.
+ */
+class FaceletState(sizeX: Int, sizeY: Int, sizeZ: Int) {
+
+    companion object {
+        private const val MAX_COLORS = 127
+
+        /**
+         * Compiled algorithms kept per cube size
+         */
+        const val MAX_COMPILED = 64
+
+        private val cache = HashMap<Long, Permutations>()
+
+        /**
+         * Permutations of the given cube size, computed on first use and cached.
+         */
+        @JvmStatic
+        fun permutations(sizeX: Int, sizeY: Int, sizeZ: Int): Permutations {
+            val key = sizeX.toLong() shl 42 or (sizeY.toLong() shl 21) or sizeZ.toLong()
+            synchronized(cache) {
+                return cache.getOrPut(key) { Permutations(sizeX, sizeY, sizeZ) }
+            }
+        }
+    }
+
+    var sizeX = sizeX
+        private set
+    var sizeY = sizeY
+        private set
+    var sizeZ = sizeZ
+        private set
+
+    private var perms = permutations(sizeX, sizeY, sizeZ)
+
+    /**
+     * Palette index of each facelet
+     */
+    val colors = ByteArray(perms.count)
+    private val scratch = ByteArray(perms.count)
+
+    private val palette = IntArray(MAX_COLORS)
+    private var paletteSize = 0
+
+    /**
+     * Told about every changed facelet, except by [relayout]
+     */
+    internal var tracker: StateTracker? = null
+
+    /**
+     * Incremented on every change, so that views can tell when to refresh
+     */
+    var version = 0L
+        private set
+
+    val count: Int
+        get() = colors.size
+
+    fun faceOffset(face: Int): Int = perms.faceOffset[face]
+
+    fun faceSize(face: Int): Int = perms.faceOffset[face + 1] - perms.faceOffset[face]
+
+    fun getColor(index: Int): Int = palette[colors[index].toInt()]
+
+    fun setColor(index: Int, color: Int) {
+        val old = colors[index]
+        colors[index] = colorIndex(color)
+        tracker?.changed(index, old, colors[index])
+        version++
+    }
+
+    /**
+     * Palette index of [color], added to the palette if needed
+     */
+    fun colorIndex(color: Int): Byte {
+        for (i in 0 until paletteSize) {
+            if (palette[i] == color) {
+                return i.toByte()
+            }
+        }
+        if (paletteSize == MAX_COLORS) {
+            throw IllegalStateException("Too many colors")
+        }
+        palette[paletteSize] = color
+        return (paletteSize++).toByte()
+    }
+
+    fun paletteColor(colorIndex: Byte): Int = palette[colorIndex.toInt()]
+
+    /**
+     * Turn one layer, with the same conventions as [Cube.rotate]
+     */
+    fun turn(axis: Axis, direction: Direction, layer: Int) {
+        applyCycles(perms.turn(axis, layer, direction))
+    }
+
+    /**
+     * Apply permutation cycles in the format of [Permutations.turn]
+     */
+    fun applyCycles(cycles: IntArray) {
+        val c = colors
+        val t = tracker
+        var i = 0
+        while (i < cycles.size) {
+            val len = cycles[i]
+            val first = cycles[i + 1]
+            val tmp = c[first]
+            if (t == null) {
+                for (k in i + 1 until i + len) {
+                    c[cycles[k]] = c[cycles[k + 1]]
+                }
+                c[cycles[i + len]] = tmp
+            } else {
+                for (k in i + 1 until i + len) {
+                    val old = c[cycles[k]]
+                    c[cycles[k]] = c[cycles[k + 1]]
+                    t.changed(cycles[k], old, c[cycles[k]])
+                }
+                val old = c[cycles[i + len]]
+                c[cycles[i + len]] = tmp
+                t.changed(cycles[i + len], old, tmp)
+            }
+            i += len + 1
+        }
+        version++
+    }
+
+    /**
+     * Apply a whole permutation, e.g. from [Permutations.compile]: facelet i takes the colour of
+     * facelet [source][i]. O(facelets) whatever the number of moves it was made of.
+     */
+    fun applyPermutation(source: IntArray) {
+        System.arraycopy(colors, 0, scratch, 0, colors.size)
+        val t = tracker
+        for (i in colors.indices) {
+            val old = colors[i]
+            colors[i] = scratch[source[i]]
+            t?.changed(i, old, colors[i])
+        }
+        version++
+    }
+
+    /**
+     * Go back to a copy of [colors] taken with the same sizes
+     */
+    fun restore(snapshot: ByteArray) {
+        val t = tracker
+        for (i in colors.indices) {
+            val old = colors[i]
+            colors[i] = snapshot[i]
+            t?.changed(i, old, colors[i])
+        }
+        version++
+    }
+
+    /**
+     * Re-lay out the facelets for a new orientation of the cube: facelet i of the new layout takes
+     * the colour of facelet [source][i] of the current one.
+     */
+    fun relayout(sizeX: Int, sizeY: Int, sizeZ: Int, source: IntArray) {
+        System.arraycopy(colors, 0, scratch, 0, colors.size)
+        for (i in colors.indices) {
+            colors[i] = scratch[source[i]]
+        }
+        this.sizeX = sizeX
+        this.sizeY = sizeY
+        this.sizeZ = sizeZ
+        perms = permutations(sizeX, sizeY, sizeZ)
+        version++
+    }
+
+    /**
+     * Facelet permutations of one cube size.
+     *
+     * A turn is stored as its cycles: each cycle is its length followed by the facelet indices,
+     * where each facelet takes the colour of the next one and the last one the colour of the first.
+     * The permutations are derived by running the ring and face rotations of the layer on facelet
+     * indices instead of colours.
+     */
+    class Permutations internal constructor(val sizeX: Int, val sizeY: Int, val sizeZ: Int) {
+
+        /**
+         * Start of each face, indexed by the FACE_* constants, plus the total count
+         */
+        val faceOffset = IntArray(Cube.FACE_COUNT + 1)
+
+        val count: Int
+
+        // [axis][layer][direction]
+        private val turns: Array<Array<Array<IntArray>>>
+
+        private val compiled = object : LinkedHashMap<StepsKey, IntArray>(16, 0.75f, true) {
+            override fun removeEldestEntry(eldest: MutableMap.MutableEntry<StepsKey, IntArray>?): Boolean {
+                return size > MAX_COMPILED
+            }
+        }
+
+        init {
+            val faceSize = IntArray(Cube.FACE_COUNT)
+            faceSize[Cube.FACE_FRONT] = sizeX * sizeY
+            faceSize[Cube.FACE_RIGHT] = sizeZ * sizeY
+            faceSize[Cube.FACE_BACK] = sizeX * sizeY
+            faceSize[Cube.FACE_LEFT] = sizeZ * sizeY
+            faceSize[Cube.FACE_TOP] = sizeX * sizeZ
+            faceSize[Cube.FACE_BOTTOM] = sizeX * sizeZ
+            for (i in 0 until Cube.FACE_COUNT) {
+                faceOffset[i + 1] = faceOffset[i] + faceSize[i]
+            }
+            count = faceOffset[Cube.FACE_COUNT]
+            turns = Array(3) { a ->
+                val axis = Axis.values()[a]
+                Array(axisSize(axis)) { layer ->
+                    Array(2) { d -> build(axis, Direction.values()[d], layer) }
+                }
+            }
+        }
+
+        fun axisSize(axis: Axis): Int {
+            return when (axis) {
+                Axis.X_AXIS -> sizeX
+                Axis.Y_AXIS -> sizeY
+                Axis.Z_AXIS -> sizeZ
+            }
+        }
+
+        fun turn(axis: Axis, layer: Int, direction: Direction): IntArray {
+            return turns[axis.ordinal][layer][direction.ordinal]
+        }
+
+        /**
+         * Compose the first [length] [MoveCode]s of [codes] into one permutation for
+         * [FaceletState.applyPermutation]. The result is cached by the content of the moves, for
+         * the [MAX_COMPILED] most recently used ones.
+         *
+         * @return null if a move turns a skewed cube as a whole, which changes its layout.
+         */
+        fun compile(codes: ShortArray, length: Int): IntArray? {
+            val key = StepsKey(codes.copyOf(length))
+            synchronized(compiled) {
+                compiled[key]?.let { return it }
+            }
+            val perm = IntArray(count) { it }
+            for (i in 0 until length) {
+                val axis = MoveCode.axis(codes[i])
+                val startFace = MoveCode.startFace(codes[i])
+                val faceCount = MoveCode.faceCount(codes[i])
+                val size = axisSize(axis)
+                if (faceCount >= size && !isSymmetric(axis)) {
+                    return null
+                }
+                for (layer in startFace until minOf(size, startFace + faceCount)) {
+                    permuteCycles(perm, turn(axis, layer, MoveCode.direction(codes[i])))
+                }
+            }
+            synchronized(compiled) {
+                compiled[key] = perm
+            }
+            return perm
+        }
+
+        private fun isSymmetric(axis: Axis): Boolean {
+            return when (axis) {
+                Axis.X_AXIS -> sizeY == sizeZ
+                Axis.Y_AXIS -> sizeX == sizeZ
+                Axis.Z_AXIS -> sizeX == sizeY
+            }
+        }
+
+        /**
+         * Same as [FaceletState.applyCycles] on an index array, which composes the permutations
+         */
+        private fun permuteCycles(a: IntArray, cycles: IntArray) {
+            var i = 0
+            while (i < cycles.size) {
+                val len = cycles[i]
+                val tmp = a[cycles[i + 1]]
+                for (k in i + 1 until i + len) {
+                    a[cycles[k]] = a[cycles[k + 1]]
+                }
+                a[cycles[i + len]] = tmp
+                i += len + 1
+            }
+        }
+
+        private fun face(face: Int): ArrayList<Int> {
+            val list = ArrayList<Int>(faceOffset[face + 1] - faceOffset[face])
+            for (i in faceOffset[face] until faceOffset[face + 1]) {
+                list.add(i)
+            }
+            return list
+        }
+
+        private fun build(axis: Axis, direction: Direction, layer: Int): IntArray {
+            val content = IntArray(count) { it }
+            rotateLayer(content, axis, direction, layer)
+            return toCycles(content)
+        }
+
+        /**
+         * content[i] = the facelet whose colour moves to i
+         */
+        private fun toCycles(content: IntArray): IntArray {
+            val visited = BooleanArray(count)
+            val cycles = ArrayList<Int>()
+            for (i in 0 until count) {
+                if (visited[i] || content[i] == i) {
+                    continue
+                }
+                val lenPos = cycles.size
+                cycles.add(0)
+                var j = i
+                while (!visited[j]) {
+                    visited[j] = true
+                    cycles.add(j)
+                    j = content[j]
+                }
+                cycles[lenPos] = cycles.size - lenPos - 1
+            }
+            return cycles.toIntArray()
+        }
+
+        private fun rotateLayer(content: IntArray, axis: Axis, direction: Direction, layer: Int) {
+            val front = face(Cube.FACE_FRONT)
+            val right = face(Cube.FACE_RIGHT)
+            val back = face(Cube.FACE_BACK)
+            val left = face(Cube.FACE_LEFT)
+            val top = face(Cube.FACE_TOP)
+            val bottom = face(Cube.FACE_BOTTOM)
+
+            var w = 0
+            var h = 0
+            var faceSquares: ArrayList<Int>? = null
+            var oppositeFace: ArrayList<Int>? = null
+
+            // This list holds the facelets from the sides of the layer being rotated
+            val squareList = ArrayList<ArrayList<Int>>(Cube.CUBE_SIDES)
+            repeat(Cube.CUBE_SIDES) {
+                squareList.add(ArrayList())
+            }
+
+            when (axis) {
+                Axis.X_AXIS -> {
+                    for (i in 0 until sizeY) {
+                        squareList[0].add(front[sizeX * i + layer])
+                        squareList[2].add(back[(sizeY - 1 - i) * sizeX + (sizeX - 1 - layer)])
+                    }
+                    for (i in 0 until sizeZ) {
+                        squareList[1].add(top[sizeX * i + layer])
+                        squareList[3].add(bottom[sizeX * i + layer])
+                    }
+                    if (layer == 0) {
+                        faceSquares = left
+                    } else if (layer == sizeX - 1) {
+                        faceSquares = right
+                    }
+                    if (sizeX == 1) {
+                        oppositeFace = right
+                    }
+                    w = sizeZ
+                    h = sizeY
+                }
+
+                Axis.Y_AXIS -> {
+                    for (i in 0 until sizeX) {
+                        squareList[0].add(front[(sizeY - 1 - layer) * sizeX + i])
+                        squareList[2].add(back[(sizeY - 1 - layer) * sizeX + i])
+                    }
+                    for (i in 0 until sizeZ) {
+                        squareList[1].add(left[(sizeY - 1 - layer) * sizeZ + i])
+                        squareList[3].add(right[(sizeY - 1 - layer) * sizeZ + i])
+                    }
+                    if (layer == 0) {
+                        faceSquares = bottom
+                    } else if (layer == sizeY - 1) {
+                        faceSquares = top
+                    }
+                    if (sizeY == 1) {
+                        oppositeFace = top
+                    }
+                    w = sizeX
+                    h = sizeZ
+                }
+
+                Axis.Z_AXIS -> {
+                    for (i in 0 until sizeX) {
+                        squareList[0].add(top[sizeX * layer + i])
+                        squareList[2].add(bottom[sizeX * (sizeZ - 1 - layer) + (sizeX - 1 - i)])
+                    }
+                    for (i in 0 until sizeY) {
+                        squareList[1].add(right[sizeZ * i + (sizeZ - 1 - layer)])
+                        squareList[3].add(left[sizeZ * (sizeY - 1 - i) + layer])
+                    }
+                    if (layer == 0) {
+                        faceSquares = back
+                    } else if (layer == sizeZ - 1) {
+                        faceSquares = front
+                    }
+                    if (sizeZ == 1) {
+                        oppositeFace = front
+                    }
+                    w = sizeX
+                    h = sizeY
+                }
+            }
+
+            if (isSymmetric(axis)) {
+                val size = if (axis == Axis.X_AXIS) sizeY else sizeX
+                rotateRing(content, squareList, direction, size)
+
+                // If the rotating layer is on the edge, rotate that face too
+                if (faceSquares != null) {
+                    if (layer == 0) {
+                        // Lower layers store colors in opposite direction, so invert direction
+                        val inverseDirection = if (direction == Direction.CLOCKWISE)
+                            Direction.COUNTER_CLOCKWISE else Direction.CLOCKWISE
+                        rotateFace(content, faceSquares, inverseDirection, size)
+                    } else {
+                        rotateFace(content, faceSquares, direction, size)
+                    }
+                }
+                // If dimension is 1, the opposite face also needs rotating
+                if (oppositeFace != null) {
+                    rotateFace(content, oppositeFace, direction, size)
+                }
+            } else {
+                // If not symmetric, effectively rotate 180'
+                skewedRotateRing(content, squareList)
+                if (faceSquares != null) {
+                    skewedRotateFace(content, faceSquares, w, h)
+                }
+                if (oppositeFace != null) {
+                    skewedRotateFace(content, oppositeFace, w, h)
+                }
+            }
+        }
+
+        /**
+         * Rotate the border of the layer. The lists are in clockwise order.
+         */
+        private fun rotateRing(content: IntArray, squareList: ArrayList<ArrayList<Int>>, dir: Direction, size: Int) {
+            val workingCopy: List<ArrayList<Int>> =
+                if (dir == Direction.COUNTER_CLOCKWISE) squareList else squareList.reversed()
+            val temp = IntArray(size) { content[workingCopy[0][it]] }
+            for (i in 0 until (Cube.CUBE_SIDES - 1)) {
+                val dst = workingCopy[i]
+                val src = workingCopy[i + 1]
+                for (j in 0 until size) {
+                    content[dst[j]] = content[src[j]]
+                }
+            }
+            val dst = workingCopy[Cube.CUBE_SIDES - 1]
+            for (i in 0 until size) {
+                content[dst[i]] = temp[i]
+            }
+        }
+
+        /**
+         * Rotate a face, ring by ring from the outside in.
+         */
+        private fun rotateFace(content: IntArray, squares: List<Int>, direction: Direction, size: Int) {
+            val temp = IntArray(size)
+            if (direction == Direction.COUNTER_CLOCKWISE) {
+                for (i in 0 until (size - 1)) {
+                    temp[i] = content[squares[i]]
+                    content[squares[i]] = content[squares[i * size + (size - 1)]]
+                }
+                for (i in 0 until (size - 1)) {
+                    content[squares[i * size + (size - 1)]] = content[squares[size * size - 1 - i]]
+                }
+                for (i in 0 until (size - 1)) {
+                    content[squares[size * size - 1 - i]] = content[squares[size * (size - 1 - i)]]
+                }
+                for (i in 0 until (size - 1)) {
+                    content[squares[size * (size - 1 - i)]] = temp[i]
+                }
+            } else {
+                for (i in 0 until (size - 1)) {
+                    temp[i] = content[squares[i]]
+                    content[squares[i]] = content[squares[size * (size - 1 - i)]]
+                }
+                for (i in 0 until (size - 1)) {
+                    content[squares[size * (size - 1 - i)]] = content[squares[size * size - 1 - i]]
+                }
+                for (i in 0 until (size - 1)) {
+                    content[squares[size * size - 1 - i]] = content[squares[i * size + (size - 1)]]
+                }
+                for (i in 0 until (size - 1)) {
+                    content[squares[i * size + (size - 1)]] = temp[i]
+                }
+            }
+
+            if (size > 3) {
+                val subset = ArrayList<Int>((size - 2) * (size - 2))
+                for (i in 1 until size - 1) {
+                    for (j in 1 until size - 1) {
+                        subset.add(squares[i * size + j])
+                    }
+                }
+                rotateFace(content, subset, direction, size - 2)
+            }
+        }
+
+        /**
+         * If not symmetric, rotate the border 180' along the given axis
+         */
+        private fun skewedRotateRing(content: IntArray, squareList: ArrayList<ArrayList<Int>>) {
+            // swap 0 <-> 2, 1 <-> 3
+            for (k in 0 until 2) {
+                val src = squareList[k]
+                val dst = squareList[k + 2]
+                for (i in src.indices) {
+                    swap(content, src[i], dst[i])
+                }
+            }
+        }
+
+        private fun skewedRotateFace(content: IntArray, squares: List<Int>, w: Int, h: Int) {
+            if (w == 1 || h == 1) {
+                val len = max(w, h)
+                for (i in 0 until (len / 2)) {
+                    swap(content, squares[i], squares[len - 1 - i])
+                }
+                return
+            }
+            for (i in 0 until (w - 1)) {
+                swap(content, squares[i], squares[w * h - 1 - i])
+            }
+            for (i in 1 until h) {
+                swap(content, squares[i * w], squares[w * (h - i) - 1])
+            }
+            if (w + h <= 6 || w < 3 || h < 3) return
+            val subset = ArrayList<Int>()
+            for (i in 1 until (w - 1)) {
+                for (j in 1 until (h - 1)) {
+                    subset.add(squares[j * w + i])
+                }
+            }
+            skewedRotateFace(content, subset, w - 2, h - 2)
+        }
+
+        private fun swap(content: IntArray, a: Int, b: Int) {
+            val t = content[a]
+            content[a] = content[b]
+            content[b] = t
+        }
+    }
+}
+
+/**
+ * Content of a sequence of move codes
+ */
+internal class StepsKey(private val codes: ShortArray) {
+    override fun equals(other: Any?): Boolean {
+        return other is StepsKey && codes.contentEquals(other.codes)
+    }
+
+    override fun hashCode(): Int {
+        return codes.contentHashCode()
+    }
+}
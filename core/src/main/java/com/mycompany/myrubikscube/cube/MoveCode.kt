@@ -0,0 +1,64 @@
+package com.mycompany.myrubikscube.cube
+
+import com.mycompany.myrubikscube.graphics.Axis
+import com.mycompany.myrubikscube.graphics.Direction
+
+/**
+ * A [Rotation] packed in a short: bits 0-1 axis, bit 2 counter-clockwise, bits 3-8 first layer and
+ * bits 9-14 layer count - 1, so cubes up to [MAX_LAYERS] layers per axis.
+ */
+object MoveCode {
+    const val MAX_LAYERS = 64
+
+    private val axes = Axis.values()
+
+    @JvmStatic
+    fun encode(axis: Axis, direction: Direction, startFace: Int, faceCount: Int): Short {
+        if (startFace !in 0 until MAX_LAYERS || faceCount !in 1..MAX_LAYERS) {
+            throw IllegalArgumentException("Layers $startFace + $faceCount out of range")
+        }
+        return (axis.ordinal or (direction.ordinal shl 2) or (startFace shl 3) or
+            ((faceCount - 1) shl 9)).toShort()
+    }
+
+    @JvmStatic
+    fun encode(rotation: Rotation): Short {
+        return encode(rotation.axis, rotation.direction, rotation.startFace, rotation.faceCount)
+    }
+
+    @JvmStatic
+    fun axis(code: Short): Axis = axes[code.toInt() and 3]
+
+    @JvmStatic
+    fun direction(code: Short): Direction {
+        return if (code.toInt() and 4 == 0) Direction.CLOCKWISE else Direction.COUNTER_CLOCKWISE
+    }
+
+    @JvmStatic
+    fun startFace(code: Short): Int = code.toInt() shr 3 and 63
+
+    @JvmStatic
+    fun faceCount(code: Short): Int = (code.toInt() shr 9 and 63) + 1
+
+    /**
+     * Same layers turned the other way
+     */
+    @JvmStatic
+    fun inverse(code: Short): Short = (code.toInt() xor 4).toShort()
+
+    /**
+     * Set up [into] for the move, ready to start
+     */
+    @JvmStatic
+    fun decode(code: Short, into: Rotation): Rotation {
+        into.reset()
+        into.axis = axis(code)
+        into.direction = direction(code)
+        into.startFace = startFace(code)
+        into.faceCount = faceCount(code)
+        return into
+    }
+
+    @JvmStatic
+    fun decode(code: Short): Rotation = decode(code, Rotation())
+}
@@ -0,0 +1,159 @@
+package com.mycompany.myrubikscube.cube
+
+import kotlin.math.abs
+
+/**
+ * Undo/redo history of the moves of a cube.
+ *
+ * Moves are kept as [MoveCode]s in a ring buffer: the moves before [position] can be undone and the
+ * ones from [position] to [end] redone. The buffer grows as needed up to [maxMoves], after which
+ * recording drops the oldest move in O(1). The colors are saved every [interval] positions, so
+ * [seek] reaches any kept position by restoring a checkpoint and replaying less than [interval]
+ * moves, instead of replaying from the start.
+ */
+class MoveHistory internal constructor(
+    private val state: FaceletState,
+    val interval: Int = DEFAULT_INTERVAL,
+    val maxMoves: Int = DEFAULT_MAX_MOVES
+) {
+
+    companion object {
+        const val DEFAULT_INTERVAL = 64
+
+        /**
+         * 2 MB of moves, a power of two
+         */
+        const val DEFAULT_MAX_MOVES = 1 shl 20
+    }
+
+    private class Checkpoint(val sizeX: Int, val sizeY: Int, val sizeZ: Int, val colors: ByteArray)
+
+    private var moves = ShortArray(64)
+    private var head = 0
+    private var count = 0
+
+    // by position / interval
+    private val checkpoints = HashMap<Int, Checkpoint>()
+
+    /**
+     * Position of the oldest move kept
+     */
+    var first = 0
+        private set
+
+    /**
+     * Number of moves done since the history was cleared
+     */
+    var position = 0
+        private set
+
+    val end: Int
+        get() = first + count
+
+    init {
+        if (maxMoves < moves.size || maxMoves and (maxMoves - 1) != 0) {
+            throw IllegalArgumentException("maxMoves must be a power of two, at least ${moves.size}")
+        }
+    }
+
+    fun canUndo(): Boolean = position > first
+
+    fun canRedo(): Boolean = position < end
+
+    /**
+     * The move done from position [pos] to [pos] + 1
+     */
+    fun moveAt(pos: Int): Short {
+        if (pos < first || pos >= end) {
+            throw IndexOutOfBoundsException("Move $pos not in $first until $end")
+        }
+        return moves[(head + pos - first) and (moves.size - 1)]
+    }
+
+    /**
+     * Record a new move done from the current state, which discards the moves to redo
+     */
+    internal fun record(code: Short) {
+        for (pos in position + 1..end) {
+            if (pos % interval == 0) checkpoints.remove(pos / interval)
+        }
+        count = position - first
+        if (position % interval == 0 && !checkpoints.containsKey(position / interval)) {
+            checkpoints[position / interval] =
+                Checkpoint(state.sizeX, state.sizeY, state.sizeZ, state.colors.copyOf())
+        }
+        if (count == moves.size) {
+            if (moves.size < maxMoves) {
+                grow()
+            } else {
+                // drop the oldest move
+                head = (head + 1) and (moves.size - 1)
+                count--
+                if (first % interval == 0) checkpoints.remove(first / interval)
+                first++
+            }
+        }
+        moves[(head + count) and (moves.size - 1)] = code
+        count++
+        position++
+    }
+
+    private fun grow() {
+        val bigger = ShortArray(moves.size * 2)
+        for (i in 0 until count) {
+            bigger[i] = moves[(head + i) and (moves.size - 1)]
+        }
+        moves = bigger
+        head = 0
+    }
+
+    /**
+     * Step back, the caller plays the inverse of the returned move
+     */
+    internal fun undo(): Short {
+        val code = moveAt(position - 1)
+        position--
+        return code
+    }
+
+    /**
+     * Step forward, the caller plays the returned move
+     */
+    internal fun redo(): Short {
+        val code = moveAt(position)
+        position++
+        return code
+    }
+
+    /**
+     * Bring the state to position [target], restoring the closest checkpoint when that is shorter
+     * than stepping from the current position. [play] applies a move to the cube at once.
+     */
+    internal fun seek(target: Int, play: (Short) -> Unit) {
+        if (target < first || target > end) {
+            throw IndexOutOfBoundsException("Position $target not in $first..$end")
+        }
+        val from = target / interval * interval
+        val checkpoint = checkpoints[target / interval]
+        if (checkpoint != null && from >= first && target - from < abs(target - position) &&
+            checkpoint.sizeX == state.sizeX && checkpoint.sizeY == state.sizeY &&
+            checkpoint.sizeZ == state.sizeZ) {
+            state.restore(checkpoint.colors)
+            position = from
+        }
+        while (position < target) {
+            play(moveAt(position++))
+        }
+        while (position > target) {
+            play(MoveCode.inverse(moveAt(--position)))
+        }
+    }
+
+    internal fun clear() {
+        head = 0
+        count = 0
+        first = 0
+        position = 0
+        checkpoints.clear()
+    }
+}
@@ -0,0 +1,172 @@
+package com.mycompany.myrubikscube.cube
+
+import com.mycompany.myrubikscube.graphics.Axis
+import com.mycompany.myrubikscube.graphics.Direction
+import kotlin.math.abs
+
+/**
+ * Shortest equivalent of a sequence of [MoveCode]s, see [Algorithm.simplify].
+ *
+ * Turns around the same axis commute, so each run of moves on one axis is reduced to the net
+ * quarter turns of each layer, whatever their order. Those are then rebuilt with the fewest layer
+ * range turns: a range turn changes the difference between two neighbouring layers at its two
+ * ends only, so the count is half the sum of the differences, picking for each one the shortest
+ * way around (+1 or -3) while keeping the sum at zero.
+ *
+ * On an axis whose cross-section is not square, a layer turn is a half turn and turning the whole
+ * cube re-orients it, so whole-cube turns are counted apart and layer turns modulo 2.
+ */
+internal object MoveSimplifier {
+
+    fun simplify(codes: ShortArray, length: Int, sizeX: Int, sizeY: Int, sizeZ: Int): Algorithm {
+        val out = Output()
+        // runs of one axis written to out: axis, start in out, sizes before
+        val runAxis = IntArray(length + 1)
+        val runStart = IntArray(length + 1)
+        val runSizes = Array(length + 1) { IntArray(0) }
+        var runs = 0
+        var sizes = intArrayOf(sizeX, sizeY, sizeZ)
+        var i = 0
+        while (i < length) {
+            val axis = MoveCode.axis(codes[i])
+            var end = i
+            while (end < length && MoveCode.axis(codes[end]) == axis) {
+                end++
+            }
+            var run = codes.copyOfRange(i, end)
+            if (runs > 0 && runAxis[runs - 1] == axis.ordinal) {
+                // the runs in between cancelled out: simplify this one with the previous one
+                runs--
+                run = out.codes.copyOfRange(runStart[runs], out.length) + run
+                out.length = runStart[runs]
+                sizes = runSizes[runs]
+            }
+            val before = sizes.copyOf()
+            val start = out.length
+            simplifyAxis(run, 0, run.size, axis, sizes, out)
+            if (out.length > start) {
+                runAxis[runs] = axis.ordinal
+                runStart[runs] = start
+                runSizes[runs] = before
+                runs++
+            }
+            i = end
+        }
+        val algo = Algorithm()
+        for (k in 0 until out.length) {
+            algo.addCode(out.codes[k])
+        }
+        return algo
+    }
+
+    private class Output {
+        var codes = ShortArray(16)
+        var length = 0
+
+        fun addCode(code: Short) {
+            if (length == codes.size) {
+                codes = codes.copyOf(length * 2)
+            }
+            codes[length++] = code
+        }
+    }
+
+    private fun simplifyAxis(codes: ShortArray, from: Int, to: Int, axis: Axis, sizes: IntArray, out: Output) {
+        val a = axis.ordinal
+        val size = sizes[a]
+        val square = sizes[(a + 1) % 3] == sizes[(a + 2) % 3]
+        if (!square && size == 1) {
+            // a layer turn cannot be told apart from a whole cube turn
+            var whole = 0
+            for (i in from until to) {
+                if (MoveCode.startFace(codes[i]) == 0) {
+                    out.addCode(codes[i])
+                    whole++
+                }
+            }
+            sizes.swapCrossSection(a, whole)
+            return
+        }
+        val modulus = if (square) 4 else 2
+        // net clockwise quarter turns of each layer, and of the whole cube when not square
+        val turns = IntArray(size)
+        var whole = 0
+        for (i in from until to) {
+            val step = if (MoveCode.direction(codes[i]) == Direction.CLOCKWISE) 1 else 3
+            val start = MoveCode.startFace(codes[i])
+            val end = minOf(size, start + MoveCode.faceCount(codes[i]))
+            if (!square && start == 0 && end == size) {
+                whole += step
+            } else {
+                for (layer in start until end) {
+                    turns[layer] += step
+                }
+            }
+        }
+
+        // differences between neighbouring layers, outside layers being still
+        val diff = IntArray(size + 1)
+        var sum = 0
+        for (i in 0..size) {
+            val d = ((if (i < size) turns[i] else 0) - (if (i > 0) turns[i - 1] else 0)).mod(modulus)
+            diff[i] = if (d * 2 > modulus) d - modulus else d
+            sum += diff[i]
+        }
+        // keep the sum at zero with the cheapest changes of a difference by the modulus, the last
+        // of equal ones so that a half turn comes out clockwise
+        while (sum != 0) {
+            val sign = if (sum > 0) 1 else -1
+            var best = -1
+            for (i in 0..size) {
+                if (diff[i] * sign > 0 &&
+                    (best < 0 || abs(diff[i] - sign * modulus) - abs(diff[i]) <=
+                        abs(diff[best] - sign * modulus) - abs(diff[best]))) {
+                    best = i
+                }
+            }
+            diff[best] -= sign * modulus
+            sum -= sign * modulus
+        }
+
+        // pair each +1 with a -1: +1 at p and -1 at q is a clockwise turn of layers p until q
+        var p = 0
+        var q = 0
+        while (true) {
+            while (p <= size && diff[p] <= 0) p++
+            while (q <= size && diff[q] >= 0) q++
+            if (p > size || q > size) break
+            diff[p]--
+            diff[q]++
+            val first = minOf(p, q)
+            val count = maxOf(p, q) - first
+            val direction = if (p < q) Direction.CLOCKWISE else Direction.COUNTER_CLOCKWISE
+            if (!square && first == 0 && count == size) {
+                // not a whole cube turn: same half turns as two ranges
+                out.addCode(MoveCode.encode(axis, direction, 0, 1))
+                out.addCode(MoveCode.encode(axis, direction, 1, size - 1))
+                continue
+            }
+            out.addCode(MoveCode.encode(axis, direction, first, count))
+        }
+
+        whole %= 4
+        if (whole != 0) {
+            val code = MoveCode.encode(axis, if (whole == 3) Direction.COUNTER_CLOCKWISE else Direction.CLOCKWISE, 0, size)
+            out.addCode(code)
+            if (whole == 2) out.addCode(code)
+        }
+        sizes.swapCrossSection(a, whole)
+    }
+
+    /**
+     * An odd number of whole cube quarter turns around [axis] swaps the sizes of the two others
+     */
+    private fun IntArray.swapCrossSection(axis: Int, quarterTurns: Int) {
+        if (quarterTurns % 2 == 0) return
+        val b = (axis + 1) % 3
+        val c = (axis + 2) % 3
+        val tmp = this[b]
+        this[b] = this[c]
+        this[c] = tmp
+    }
+}
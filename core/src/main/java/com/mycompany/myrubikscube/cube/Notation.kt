@@ -0,0 +1,271 @@
+package com.mycompany.myrubikscube.cube
+
+import com.mycompany.myrubikscube.graphics.Axis
+import com.mycompany.myrubikscube.graphics.Direction
+import java.io.Reader
+
+/**
+ * Reads and writes move notation for a cube of the given size, as [MoveCode]s.
+ *
+ * Understands the WCA and SiGN moves:
+ * - R L U D F B: one outer layer, "2" for a half turn, "'" counter-clockwise, e.g. R, U', F2, R2'
+ * - Rw or r: the two outer layers, 3Rw: the three outer layers
+ * - 3R: the third layer from the right only, 2-3Rw: layers two to three
+ * - M E S: all inner layers, turning like L, D and F
+ * - x y z: the whole cube, turning like R, U and F
+ *
+ * Moves may be separated by spaces, commas, dots or parentheses, or not at all ("RUR'U'"). A half
+ * turn is two quarter turn codes, as [Rotation] only has quarter turns.
+ *
+ * Parsing is a single pass, a character at a time, without regex or per-move strings, so it can
+ * stream through a [Reader] of any length.
+ */
+class Notation(val sizeX: Int, val sizeY: Int, val sizeZ: Int) {
+
+    /**
+     * Receives the parsed moves, one quarter turn at a time
+     */
+    fun interface MoveSink {
+        fun move(code: Short)
+    }
+
+    constructor(size: Int) : this(size, size, size)
+
+    /**
+     * Parse [text] into an algorithm
+     */
+    fun parse(text: CharSequence): Algorithm {
+        val algo = Algorithm()
+        parse(text, MoveSink { algo.addCode(it) })
+        return algo
+    }
+
+    fun parse(text: CharSequence, sink: MoveSink) {
+        val parser = Parser(sink)
+        for (i in 0 until text.length) {
+            parser.feed(text[i])
+        }
+        parser.finish()
+    }
+
+    fun parse(reader: Reader, sink: MoveSink) {
+        val parser = Parser(sink)
+        val buffer = CharArray(8192)
+        while (true) {
+            val n = reader.read(buffer)
+            if (n < 0) break
+            for (i in 0 until n) {
+                parser.feed(buffer[i])
+            }
+        }
+        parser.finish()
+    }
+
+    fun format(algo: Algorithm): String {
+        val sb = StringBuilder(algo.length * 3)
+        format(algo.toCodes(), algo.length, sb)
+        return sb.toString()
+    }
+
+    /**
+     * Write the first [length] moves of [codes] separated by spaces, two equal quarter turns in a
+     * row as a half turn
+     */
+    fun format(codes: ShortArray, length: Int, out: Appendable) {
+        var i = 0
+        while (i < length) {
+            if (i > 0) out.append(' ')
+            val half = i + 1 < length && codes[i + 1] == codes[i]
+            appendMove(codes[i], half, out)
+            i += if (half) 2 else 1
+        }
+    }
+
+    private fun axisSize(axis: Axis): Int {
+        return when (axis) {
+            Axis.X_AXIS -> sizeX
+            Axis.Y_AXIS -> sizeY
+            Axis.Z_AXIS -> sizeZ
+        }
+    }
+
+    private fun appendMove(code: Short, half: Boolean, out: Appendable) {
+        val axis = MoveCode.axis(code)
+        val size = axisSize(axis)
+        val start = MoveCode.startFace(code)
+        val count = MoveCode.faceCount(code)
+        val clockwise = MoveCode.direction(code) == Direction.CLOCKWISE
+        // letters turning clockwise, then counter-clockwise around the positive axis
+        val high = "RUF"[axis.ordinal]
+        val low = "LDB"[axis.ordinal]
+        val prime: Boolean
+        when {
+            start == 0 && count >= size -> {
+                out.append("xyz"[axis.ordinal])
+                prime = !clockwise
+            }
+            start + count == size -> {
+                appendDepth(count, high, out)
+                prime = !clockwise
+            }
+            start == 0 -> {
+                appendDepth(count, low, out)
+                prime = clockwise
+            }
+            start == 1 && count == size - 2 -> {
+                out.append("MES"[axis.ordinal])
+                prime = clockwise == (axis != Axis.Z_AXIS)
+            }
+            else -> {
+                // inner layers, counted from the high side
+                val first = size - start - count + 1
+                val last = size - start
+                if (count == 1) {
+                    out.append(last.toString()).append(high)
+                } else {
+                    out.append(first.toString()).append('-').append(last.toString())
+                        .append(high).append('w')
+                }
+                prime = !clockwise
+            }
+        }
+        if (half) out.append('2')
+        if (prime) out.append('\'')
+    }
+
+    private fun appendDepth(count: Int, face: Char, out: Appendable) {
+        if (count > 2) out.append(count.toString())
+        out.append(face)
+        if (count > 1) out.append('w')
+    }
+
+    private inner class Parser(private val sink: MoveSink) {
+        private var position = 0
+
+        // 0: between moves, 1: in the layer prefix, 2: after the move letter
+        private var phase = 0
+        private var from = 0
+        private var to = 0
+        private var range = false
+        private var letter = ' '
+        private var wide = false
+        private var amount = -1
+        private var prime = false
+
+        fun feed(c: Char) {
+            position++
+            if (phase == 2) {
+                when {
+                    c == 'w' && !wide && amount < 0 && !prime -> {
+                        wide = true
+                        return
+                    }
+                    c in '0'..'9' && !prime -> {
+                        amount = (if (amount < 0) 0 else amount % 4 * 10) + (c - '0')
+                        return
+                    }
+                    c == '\'' -> {
+                        prime = !prime
+                        return
+                    }
+                }
+                emit()
+            }
+            when {
+                c in '0'..'9' -> {
+                    phase = 1
+                    if (range) to = to * 10 + (c - '0') else from = from * 10 + (c - '0')
+                    if (from > MoveCode.MAX_LAYERS || to > MoveCode.MAX_LAYERS) error("layer")
+                }
+                c == '-' && phase == 1 && !range -> range = true
+                c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == ',' || c == '.' ||
+                    c == '(' || c == ')' -> if (phase != 0) error("separator")
+                "RLUDFBMESxyzrludfb".indexOf(c) >= 0 -> {
+                    phase = 2
+                    letter = c
+                }
+                else -> error("character '$c'")
+            }
+        }
+
+        fun finish() {
+            if (phase == 2) emit()
+            if (phase != 0) error("end")
+        }
+
+        private fun error(what: String): Nothing {
+            throw IllegalArgumentException("Unexpected $what at $position")
+        }
+
+        private fun emit() {
+            val upper = letter.uppercaseChar()
+            val axis = when (upper) {
+                'R', 'L', 'M', 'X' -> Axis.X_AXIS
+                'U', 'D', 'E', 'Y' -> Axis.Y_AXIS
+                else -> Axis.Z_AXIS
+            }
+            val size = axisSize(axis)
+            // outer layers counted from the face side, for R L U D F B
+            var first = 1
+            var last = 1
+            if (letter in 'a'..'z' && upper != 'X' && upper != 'Y' && upper != 'Z') {
+                wide = true
+            }
+            if (range) {
+                first = from
+                last = to
+            } else if (wide) {
+                last = if (from > 0) from else 2
+            } else if (from > 0) {
+                first = from
+                last = from
+            }
+            val start: Int
+            val count: Int
+            val clockwise: Boolean
+            when (upper) {
+                'X', 'Y', 'Z' -> {
+                    start = 0
+                    count = size
+                    clockwise = true
+                }
+                'M', 'E', 'S' -> {
+                    if (size < 3) error("slice move on $size layers")
+                    start = 1
+                    count = size - 2
+                    clockwise = upper == 'S'
+                }
+                else -> {
+                    if (first < 1 || first > last || last > size) error("layers $first-$last")
+                    count = last - first + 1
+                    if (upper == 'R' || upper == 'U' || upper == 'F') {
+                        start = size - last
+                        clockwise = true
+                    } else {
+                        start = first - 1
+                        clockwise = false
+                    }
+                }
+            }
+            var turns = if (amount < 0) 1 else amount % 4
+            var reverse = prime
+            if (turns == 3) {
+                turns = 1
+                reverse = !reverse
+            }
+            // R2' stays two counter-clockwise quarter turns, as written
+            val direction = if (clockwise != reverse) Direction.CLOCKWISE else Direction.COUNTER_CLOCKWISE
+            val code = MoveCode.encode(axis, direction, start, count)
+            if (turns > 0) sink.move(code)
+            if (turns == 2) sink.move(code)
+
+            phase = 0
+            from = 0
+            to = 0
+            range = false
+            wide = false
+            amount = -1
+            prime = false
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.mycompany.myrubikscube.cube
+
+import com.mycompany.myrubikscube.cs.min2phase.CostSearch
+import kotlin.math.ceil
+
+/**
+ * Estimates how many frames it takes to animate a min2phase solution string on screen.
+ *
+ * @param quarterTurnFrames frames for one 90 degree step
+ * @param halfTurnFrames frames for an "X2" move, two 90 degree steps when it is expanded like
+ *                       parseMin2PhaseSolution() does
+ * @param axisChangeFrames extra frames when a move turns a different axis than the previous one
+ */
+class PlaybackCostModel(
+    val quarterTurnFrames: Float,
+    val halfTurnFrames: Float = 2 * quarterTurnFrames,
+    val axisChangeFrames: Float = 0f
+) : CostSearch.CostModel {
+
+    companion object {
+        /**
+         * The cost model of RubiksCube.onNextFrame(): a 90 degree step increments the angle by
+         * [angleDelta] per frame, and takes one more frame to finish the rotation.
+         */
+        fun forAngleDelta(angleDelta: Float): PlaybackCostModel {
+            val frames = ceil(90f / angleDelta) + 1
+            return PlaybackCostModel(frames)
+        }
+    }
+
+    override fun cost(solution: String): Double {
+        var cost = 0.0
+        var lastAxis = -1
+        var i = 0
+        val len = solution.length
+        while (i < len) {
+            val c = solution[i++]
+            val axis = when (c) {
+                'R', 'L' -> 0
+                'U', 'D' -> 1
+                'F', 'B' -> 2
+                else -> continue
+            }
+            val suffix = if (i < len) solution[i] else ' '
+            cost += if (suffix == '2') halfTurnFrames else quarterTurnFrames
+            if (lastAxis != -1 && axis != lastAxis) {
+                cost += axisChangeFrames
+            }
+            lastAxis = axis
+        }
+        return cost
+    }
+}
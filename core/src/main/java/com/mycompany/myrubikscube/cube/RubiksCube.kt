@@ -19,8 +19,6 @@ open class RubiksCube : Cube {
         const val ANGLE_DELTA_SLOW = 2f
         const val ANGLE_DELTA_NORMAL = 4f
         const val ANGLE_DELTA_FAST = 10f
-
-        private const val MAX_UNDO_COUNT = 40
     }
 
     enum class CubeState {
@@ -59,14 +57,9 @@ open class RubiksCube : Cube {
         protected set
 
     /**
-     * Stores the past [MAX_UNDO_COUNT] moves for UNDO.
+     * Manual moves, for UNDO and REDO
      */
-    private var mUndoStack: ArrayList<Rotation>? = null
-
-    /**
-     * Stores the future moves for REDO (the opposite of undone moves).
-     */
-    private var mRedoStack: ArrayList<Rotation>? = null
+    private val mHistory = MoveHistory(mFacelets)
 
     private var mUndoingFlag = false
 
@@ -75,6 +68,9 @@ open class RubiksCube : Cube {
      */
     private var mRandomizedMoves: ArrayList<Rotation>? = null
 
+    // Shared by randomize() and the animated randomize instead of a new generator per call
+    private val mRandom = Random()
+
     /**
      * Optional renderer to draw the cube each frame
      */
@@ -87,8 +83,6 @@ open class RubiksCube : Cube {
     private fun init() {
         mCurrentAlgo = null
         mRotation = Rotation()
-        mUndoStack = ArrayList()
-        mRedoStack = ArrayList()
         mRandomizedMoves = ArrayList()
         mMoveCount = 0
     }
@@ -122,7 +116,7 @@ open class RubiksCube : Cube {
      */
     fun randomize(count: Int) {
         var lastRotation: Rotation? = null
-        val random = Random()
+        val random = mRandom
         val axes = arrayOf(Axis.X_AXIS, Axis.Y_AXIS, Axis.Z_AXIS)
         mRandomizedMoves!!.clear()
 
@@ -152,6 +146,28 @@ open class RubiksCube : Cube {
         clearUndoStack()
     }
 
+    /**
+     * Apply all steps of [algo] at once (instant, no animation), through its compiled permutation
+     * so the cost does not depend on its length. Like randomize, it clears the undo history.
+     */
+    fun applyAlgorithm(algo: Algorithm) {
+        if (mState != CubeState.IDLE || rotateMode != RotateMode.NONE) {
+            Log.w(tag, "Cannot apply an algorithm in state $mState, mode $rotateMode")
+            return
+        }
+        val perm = algo.compile(mSizeX, mSizeY, mSizeZ)
+        if (perm != null) {
+            mFacelets.applyPermutation(perm)
+        } else {
+            // the algorithm re-orients a skewed cube, which changes its layout
+            for (i in 0 until algo.length) {
+                applyMove(algo.code(i))
+            }
+        }
+        mMoveCount = 0
+        clearUndoStack()
+    }
+
     /**
      * Animate a randomize until stopRandomize() is called
      */
@@ -313,7 +329,7 @@ open class RubiksCube : Cube {
      */
     private fun rotateRandom() {
         mRotation?.reset()
-        val random = Random()
+        val random = mRandom
         val axes = arrayOf(Axis.X_AXIS, Axis.Y_AXIS, Axis.Z_AXIS)
         mRotation?.axis = axes[kotlin.math.abs(random.nextInt(3))]
         mRotation?.direction = if (random.nextBoolean()) Direction.CLOCKWISE else Direction.COUNTER_CLOCKWISE
@@ -397,21 +413,14 @@ open class RubiksCube : Cube {
      * Returns true if each face is uniform
      */
     protected val isSolved: Boolean
-        get() {
-            fun checkFace(faceSquares: ArrayList<Square>): Boolean {
-                val centerColor = faceSquares[faceSquares.size / 2].color
-                for (sq in faceSquares) {
-                    if (sq.color != centerColor) return false
-                }
-                return true
-            }
-            return (checkFace(mTopSquares) &&
-                checkFace(mLeftSquares) &&
-                checkFace(mFrontSquares) &&
-                checkFace(mRightSquares) &&
-                checkFace(mBackSquares) &&
-                checkFace(mBottomSquares))
-        }
+        get() = mTracker.isSolved
+
+    /**
+     * Solved faces, correctly placed pieces and Zobrist hash of the colors, kept up to date on
+     * every move
+     */
+    val stateTracker: StateTracker
+        get() = mTracker
 
     /**
      * Provide an algorithm to run
@@ -423,9 +432,11 @@ open class RubiksCube : Cube {
         if (mState != CubeState.SOLVING && mState != CubeState.TESTING && mState != CubeState.HELPING) {
             throw IllegalStateException("Invalid state for algos: $mState")
         }
-        mCurrentAlgo = algo
+        // fewer steps to animate, unless everything cancels out and there would be none to play
+        val simplified = algo.simplify(mSizeX, mSizeY, mSizeZ)
+        mCurrentAlgo = if (simplified.length > 0) simplified else algo
         rotateMode = RotateMode.ALGORITHM
-        mRotation = algo.getNextStep()
+        mRotation = mCurrentAlgo!!.getNextStep()
         mRotation?.start()
     }
 
@@ -450,17 +461,11 @@ open class RubiksCube : Cube {
             return
         }
 
-        // Because a new manual rotation invalidates the “redo” path
-        mRedoStack?.clear()
+        // Also drops the "redo" path
+        mHistory.record(MoveCode.encode(rotation))
 
         rotateMode = RotateMode.MANUAL
         mRotation = rotation.duplicate()
-
-        // Push the reverse onto undo
-        if (mUndoStack!!.size == MAX_UNDO_COUNT) {
-            mUndoStack!!.removeAt(0)
-        }
-        mUndoStack!!.add(rotation.getReverse())
         mRotation!!.start()
     }
 
@@ -476,23 +481,14 @@ open class RubiksCube : Cube {
             Log.w(tag, "Cannot undo in mode $rotateMode")
             return
         }
-        if (mUndoStack.isNullOrEmpty()) {
+        if (!mHistory.canUndo()) {
             Log.d(tag, "nothing to undo")
             return
         }
         rotateMode = RotateMode.MANUAL
         mUndoingFlag = true
 
-        val rotation = mUndoStack!!.removeAt(mUndoStack!!.size - 1)
-
-        // The undone rotation's reverse => push onto redo stack
-        val redoRotation = rotation.getReverse()
-        if (mRedoStack!!.size == MAX_UNDO_COUNT) {
-            mRedoStack!!.removeAt(0)
-        }
-        mRedoStack!!.add(redoRotation)
-
-        mRotation = rotation
+        mRotation = MoveCode.decode(MoveCode.inverse(mHistory.undo()))
         mRotation!!.start()
     }
 
@@ -508,31 +504,65 @@ open class RubiksCube : Cube {
             Log.w(tag, "Cannot redo in mode $rotateMode")
             return
         }
-        if (mRedoStack.isNullOrEmpty()) {
+        if (!mHistory.canRedo()) {
             Log.d(tag, "nothing to redo")
             return
         }
         rotateMode = RotateMode.MANUAL
 
-        val rotation = mRedoStack!!.removeAt(mRedoStack!!.size - 1)
+        mRotation = MoveCode.decode(mHistory.redo())
+        mRotation!!.start()
+    }
+
+    /**
+     * Manual moves done and undone since the last randomize or reset
+     */
+    val moveHistory: MoveHistory
+        get() = mHistory
 
-        // The redone rotation's reverse => push back onto undo
-        val undoRotation = rotation.getReverse()
-        if (mUndoStack!!.size == MAX_UNDO_COUNT) {
-            mUndoStack!!.removeAt(0)
+    /**
+     * Jump (instant, no animation) to [position] in the history, between moveHistory.first and
+     * moveHistory.end
+     */
+    fun seekHistory(position: Int) {
+        if (mState != CubeState.IDLE || rotateMode != RotateMode.NONE) {
+            Log.w(tag, "Cannot seek in state $mState, mode $rotateMode")
+            return
+        }
+        if (position < mHistory.first || position > mHistory.end) {
+            Log.w(tag, "Position $position not in history ${mHistory.first}..${mHistory.end}")
+            return
         }
-        mUndoStack!!.add(undoRotation)
+        mMoveCount = maxOf(0, mMoveCount + position - mHistory.position)
+        mHistory.seek(position) { applyMove(it) }
+        if (isSolved) {
+            mListener?.handleCubeSolved()
+        }
+    }
 
-        mRotation = rotation
-        mRotation!!.start()
+    /**
+     * Apply a [MoveCode] at once, like finishRotation does
+     */
+    private fun applyMove(code: Short) {
+        val axis = MoveCode.axis(code)
+        val direction = MoveCode.direction(code)
+        val startFace = MoveCode.startFace(code)
+        val size = getAxisSize(axis)
+        val end = minOf(size, startFace + MoveCode.faceCount(code))
+        if (!isSymmetricAroundAxis(axis) && startFace == 0 && end == size) {
+            rotate(axis, direction)
+        } else {
+            for (face in startFace until end) {
+                rotate(axis, direction, face)
+            }
+        }
     }
 
     /**
      * Clear the undo/redo stacks
      */
     protected fun clearUndoStack() {
-        mUndoStack?.clear()
-        mRedoStack?.clear()
+        mHistory.clear()
     }
 
     /**
@@ -566,6 +596,12 @@ open class RubiksCube : Cube {
         }
     }
 
+    /**
+     * Current angle increment per frame, see [setSpeed]
+     */
+    val angleDelta: Float
+        get() = mAngleDelta
+
     /**
      * Sets the entire cube to a single color
      */
@@ -648,8 +684,8 @@ open class RubiksCube : Cube {
         }
         val firstSquare = mAllSquares[startIndex]
         val lastSquare = mAllSquares[endIndex]
-        val firstFace = getFaceFromSquare(firstSquare)
-        val lastFace = getFaceFromSquare(lastSquare)
+        val firstFace = faceOf(firstSquare)
+        val lastFace = faceOf(lastSquare)
         if (firstFace == lastFace) {
             Log.w(tag, "drag started and ended in the same face")
             return
@@ -685,40 +721,7 @@ open class RubiksCube : Cube {
         }
 
         // Which layer are we rotating?
-        val layer = findLayerToRotate(axis, firstFace, firstSquare)
+        val layer = layerOf(axis, firstSquare)
         rotate(Rotation(axis, direction, layer))
     }
-
-    /**
-     * Returns which layer index holds the [key] square along the [axis].
-     */
-    private fun findLayerToRotate(axis: Axis, face: Int, key: Square): Int {
-        val layers = when (axis) {
-            Axis.X_AXIS -> mXaxisLayers
-            Axis.Y_AXIS -> mYaxisLayers
-            Axis.Z_AXIS -> mZaxisLayers
-        }
-        for (i in layers.indices) {
-            val layer = layers[i]
-            for (piece in layer) {
-                if (piece.mSquares.contains(key)) {
-                    return i
-                }
-            }
-        }
-        throw InvalidParameterException("Unreachable: Axis $axis, face $face")
-    }
-
-    /**
-     * Given a square, find which face array it belongs to
-     */
-    private fun getFaceFromSquare(square: Square): Int {
-        for (i in mAllFaces.indices) {
-            val faceList = mAllFaces[i] ?: continue
-            if (square in faceList) {
-                return i
-            }
-        }
-        throw InvalidParameterException("Square not found")
-    }
 }
@@ -3,7 +3,11 @@ package com.mycompany.myrubikscube.cube
 import com.mycompany.myrubikscube.Log
 import com.mycompany.myrubikscube.graphics.Axis
 import com.mycompany.myrubikscube.graphics.Direction
+import com.mycompany.myrubikscube.cs.min2phase.CostSearch
+import com.mycompany.myrubikscube.cs.min2phase.LiveCubie
 import com.mycompany.myrubikscube.cs.min2phase.Search
+import com.mycompany.myrubikscube.cs.min2phase.SolveTuner
+import com.mycompany.myrubikscube.cs.min2phase.SubgoalSolver
 import java.security.InvalidParameterException
 import java.util.ArrayList
 import java.util.Arrays
@@ -33,6 +37,17 @@ class RubiksCube3x3x3 : RubiksCube(SIZE) {
         private const val MIDDLE = 1
         private const val OUTER = 2
 
+        // min2phase face order
+        private const val FACE_LETTERS = "URFDLB"
+
+        // Positions (in FACE_LETTERS order) each face moves through on a clockwise whole cube
+        // turn around X (like R), Y (like U) and Z (like F)
+        private val WHOLE_TURN_CYCLES = arrayOf(
+            intArrayOf(2, 0, 5, 3),
+            intArrayOf(2, 4, 5, 1),
+            intArrayOf(0, 1, 3, 4)
+        )
+
         // Face squares indexing
         private const val FIRST_ROW_LEFT = 0
         private const val FIRST_ROW_CENTER = 1
@@ -71,6 +86,18 @@ class RubiksCube3x3x3 : RubiksCube(SIZE) {
 
     private var solveState = SolveState.None
 
+    // Reads min2phase solutions
+    private val notation = Notation(SIZE)
+
+    // Cubie state relative to the centers, in the frame the cube had at the last sync
+    private val mCubie = LiveCubie()
+
+    // Current position of each face of that frame, faces in the min2phase order U R F D L B
+    private val mFrameFace = intArrayOf(0, 1, 2, 3, 4, 5)
+
+    // Facelet version mCubie matches, -1 to sync from the colors on next use
+    private var mCubieVersion = -1L
+
     // The colors of the top and bottom center squares
     private var mTopColor = 0
     private var mBottomColor = 0
@@ -79,6 +106,22 @@ class RubiksCube3x3x3 : RubiksCube(SIZE) {
     private var currentStepIndex: Int = 0
     private var isStepByStepSolving: Boolean = false
 
+    /**
+     * Milliseconds spent looking for the solution which animates fastest at the current speed,
+     * 0 to take the first solution found.
+     */
+    var solveTimeBudget: Long = 0
+
+    /**
+     * Cost model used when [solveTimeBudget] is set, null to derive it from the current speed.
+     */
+    var playbackCostModel: PlaybackCostModel? = null
+
+    /**
+     * Picks the search limits from the latency of recent solves on this device, null for the fixed limits.
+     */
+    var solveTuner: SolveTuner? = null
+
     override var mState = CubeState.IDLE
     override var mListener: CubeListener? = null
 
@@ -165,7 +208,7 @@ class RubiksCube3x3x3 : RubiksCube(SIZE) {
         appendFaceString(mLeftSquares, sb, 'L')
         // (6) B face (mBackSquares)
         appendFaceString(mBackSquares, sb, 'B')
-        Log.w(tag, sb.toString())
+        Log.d(tag, sb.toString())
         return sb.toString()
     }
 
@@ -194,79 +237,7 @@ class RubiksCube3x3x3 : RubiksCube(SIZE) {
     // our Axis/Direction/face logic. Then we can run setAlgo(...) with it.
     // ------------------------------------------------------------------------
     private fun parseMin2PhaseSolution(solutionStr: String): Algorithm {
-        val algo = Algorithm()
-        val tokens = solutionStr.split("\\s+".toRegex()).filter { it.isNotBlank() }
-
-        for (token in tokens) {
-            // token might be "R", "R'", "R2", "U", "U'", "U2", etc.
-            val faceChar = token[0]    // 'R','L','U','D','F','B'
-            val suffix   = token.drop(1) // "", "2", or "'"
-
-            // Decide axis & faceIndex & baseDir
-            // By convention in your code:
-            //  R -> X-axis, face = sizeX-1, clockwise
-            //  L -> X-axis, face = 0,        counter-clockwise
-            //  U -> Y-axis, face = sizeY-1, clockwise
-            //  D -> Y-axis, face = 0,       counter-clockwise
-            //  F -> Z-axis, face = sizeZ-1, clockwise
-            //  B -> Z-axis, face = 0,       counter-clockwise
-            var axis: Axis
-            var faceIndex: Int
-            var baseDir = Direction.CLOCKWISE
-
-            when (faceChar) {
-                'R' -> {
-                    axis = Axis.X_AXIS
-                    faceIndex = sizeX - 1
-                    baseDir = Direction.CLOCKWISE
-                }
-                'L' -> {
-                    axis = Axis.X_AXIS
-                    faceIndex = 0
-                    baseDir = Direction.COUNTER_CLOCKWISE
-                }
-                'U' -> {
-                    axis = Axis.Y_AXIS
-                    faceIndex = sizeY - 1
-                    baseDir = Direction.CLOCKWISE
-                }
-                'D' -> {
-                    axis = Axis.Y_AXIS
-                    faceIndex = 0
-                    baseDir = Direction.COUNTER_CLOCKWISE
-                }
-                'F' -> {
-                    axis = Axis.Z_AXIS
-                    faceIndex = sizeZ - 1
-                    baseDir = Direction.CLOCKWISE
-                }
-                'B' -> {
-                    axis = Axis.Z_AXIS
-                    faceIndex = 0
-                    baseDir = Direction.COUNTER_CLOCKWISE
-                }
-                else -> throw IllegalArgumentException("Unexpected face char: $faceChar in token $token")
-            }
-
-            // Check suffix for 2 or ' or empty
-            if (suffix == "2") {
-                // 180-degree turn => two 90-degree turns
-                algo.addStep(axis, baseDir, faceIndex)
-                algo.addStep(axis, baseDir, faceIndex)
-            } else if (suffix == "'") {
-                // invert direction
-                val dir = if (baseDir == Direction.CLOCKWISE) Direction.COUNTER_CLOCKWISE else Direction.CLOCKWISE
-                algo.addStep(axis, dir, faceIndex)
-            } else if (suffix.isEmpty()) {
-                // normal 90-degree move
-                algo.addStep(axis, baseDir, faceIndex)
-            } else {
-                // e.g. "R2'" would be weird. Log or ignore.
-                Log.w(tag, "Unexpected token suffix: $token")
-            }
-        }
-
-        return algo
+        return notation.parse(solutionStr)
     }
 
     // ------------------------------------------------------------------------
@@ -1303,21 +1274,166 @@ class RubiksCube3x3x3 : RubiksCube(SIZE) {
         }
         clearUndoStack()
 
-        val scrambled = toMin2PhaseString()
+        val error = syncCubie()
+        if (error != 0) {
+            sendMessage("No solution found or error: Error ${-error}")
+            return null
+        }
 
-        val search = Search()
-        val result = search.solution(scrambled, 21, 100_000_000, 0, 0)
+        val result = if (solveTimeBudget > 0) {
+            val model = playbackCostModel ?: PlaybackCostModel.forAngleDelta(angleDelta)
+            CostSearch().solution(mCubie, 21, solveTimeBudget, model)
+        } else {
+            solveTuner?.solution(mCubie, 0) ?: Search().solution(mCubie, 21, 100_000_000, 0, 0)
+        }
         if (result.startsWith("Error")) {
             sendMessage("No solution found or error: $result")
             return null
         }
 
-        val algo = parseMin2PhaseSolution(result)
-        Log.d(tag, algo.toString())
+        val algo = parseMin2PhaseSolution(toCurrentFrame(result))
+        Log.d(tag, notation.format(algo))
 
         return algo.steps
     }
 
+    /**
+     * Computes a layer by layer solution up front for the step by step mode: the cross on the bottom face,
+     * the four first two layers pairs, then the orientation and the permutation of the last layer, see
+     * [SubgoalSolver]. Does not set any algorithm or modify the cube's state.
+     *
+     * @return one list of Rotations per step, empty if the step is already solved, or null if an error occurs.
+     */
+    fun computeTutorialSteps(): List<List<Rotation>>? {
+        if (mState != CubeState.IDLE) {
+            sendMessage("Invalid state to solve: $mState")
+            return null
+        }
+        val error = syncCubie()
+        if (error != 0) {
+            sendMessage("No solution found or error: Error ${-error}")
+            return null
+        }
+        val solver = SubgoalSolver()
+        solver.setState(mCubie)
+        val stages = solver.solveAll()
+        if (stages.any { it.startsWith("Error") }) {
+            sendMessage("No solution found or error: ${stages.first { it.startsWith("Error") }}")
+            return null
+        }
+        return stages.map { parseMin2PhaseSolution(toCurrentFrame(it)).steps }
+    }
+
+    // ------------------------------------------------------------------------
+    // LIVE CUBIE STATE: every turn is also applied to mCubie with the min2phase
+    // move tables, so that a solve starts from it without a facelet string.
+    // ------------------------------------------------------------------------
+
+    /**
+     * Cubie state of the cube, relative to its centers in the frame of [toCurrentFrame]
+     */
+    val liveCubie: LiveCubie
+        get() {
+            syncCubie()
+            return mCubie
+        }
+
+    /**
+     * Rebuild mCubie from the colors if they changed other than by turns, e.g. an algorithm
+     * applied at once or colors set directly.
+     *
+     * @return 0, or the negated min2phase error code if the colors are not a valid cube
+     */
+    private fun syncCubie(): Int {
+        if (mCubieVersion == mFacelets.version) {
+            return 0
+        }
+        val error = mCubie.set(toMin2PhaseString())
+        if (error != 0) {
+            return error
+        }
+        for (i in mFrameFace.indices) {
+            mFrameFace[i] = i
+        }
+        mCubieVersion = mFacelets.version
+        return 0
+    }
+
+    /**
+     * Rewrite a min2phase solution for [liveCubie] with the faces where they are now
+     */
+    fun toCurrentFrame(solution: String): String {
+        val sb = StringBuilder(solution.length)
+        for (c in solution) {
+            val face = FACE_LETTERS.indexOf(c)
+            sb.append(if (face >= 0) FACE_LETTERS[mFrameFace[face]] else c)
+        }
+        return sb.toString()
+    }
+
+    override fun rotate(axis: Axis, direction: Direction, face: Int) {
+        val inSync = mCubieVersion == mFacelets.version
+        super.rotate(axis, direction, face)
+        if (!inSync) return
+        if (face != MIDDLE) {
+            moveCubie(axis, direction, face)
+        } else {
+            // a middle slice is both outer layers turned back, and the whole cube turned
+            val back = if (direction == Direction.CLOCKWISE) Direction.COUNTER_CLOCKWISE else Direction.CLOCKWISE
+            moveCubie(axis, back, INNER)
+            moveCubie(axis, back, OUTER)
+            turnFrame(axis, direction)
+        }
+        mCubieVersion = mFacelets.version
+    }
+
+    override fun rotate(axis: Axis, direction: Direction) {
+        val inSync = mCubieVersion == mFacelets.version
+        super.rotate(axis, direction)
+        if (!inSync) return
+        turnFrame(axis, direction)
+        mCubieVersion = mFacelets.version
+    }
+
+    private fun moveCubie(axis: Axis, direction: Direction, layer: Int) {
+        // the face turned, and whether it turns clockwise looking at it
+        val position: Int
+        val clockwise: Boolean
+        when (axis) {
+            Axis.X_AXIS -> {
+                position = if (layer == OUTER) 1 else 4
+                clockwise = (layer == OUTER) == (direction == Direction.CLOCKWISE)
+            }
+            Axis.Y_AXIS -> {
+                position = if (layer == OUTER) 0 else 3
+                clockwise = (layer == OUTER) == (direction == Direction.CLOCKWISE)
+            }
+            Axis.Z_AXIS -> {
+                position = if (layer == OUTER) 2 else 5
+                clockwise = (layer == OUTER) == (direction == Direction.CLOCKWISE)
+            }
+        }
+        var face = 0
+        while (mFrameFace[face] != position) {
+            face++
+        }
+        mCubie.move(face * 3 + if (clockwise) 0 else 2)
+    }
+
+    /**
+     * Move the frame faces along with a whole cube turn
+     */
+    private fun turnFrame(axis: Axis, direction: Direction) {
+        val cycle = WHOLE_TURN_CYCLES[axis.ordinal]
+        val shift = if (direction == Direction.CLOCKWISE) 1 else 3
+        for (i in mFrameFace.indices) {
+            val k = cycle.indexOf(mFrameFace[i])
+            if (k >= 0) {
+                mFrameFace[i] = cycle[(k + shift) % 4]
+            }
+        }
+    }
+
     /**
      * Allows external classes to set the cube's state.
      */
@@ -1,27 +1,37 @@
 package com.mycompany.myrubikscube.cube
 
-import com.badlogic.gdx.graphics.Color
-import com.badlogic.gdx.graphics.VertexAttributes
-import com.badlogic.gdx.graphics.g3d.Material
-import com.badlogic.gdx.graphics.g3d.Model
-import com.badlogic.gdx.graphics.g3d.ModelInstance
-import com.badlogic.gdx.graphics.g3d.attributes.ColorAttribute
-import com.badlogic.gdx.graphics.g3d.utils.ModelBuilder
-import com.badlogic.gdx.math.Vector3
-import com.badlogic.gdx.math.collision.BoundingBox
 import com.mycompany.myrubikscube.graphics.Axis
 import com.mycompany.myrubikscube.graphics.Point3D
 
+/**
+ * Logical square: its face, its place in the [FaceletState] of the cube and the geometry it was
+ * created with. It has no graphics resources, see [com.mycompany.myrubikscube.graphics.SquareView].
+ */
 class Square {
     private var mFace: Int = -1
     private var mCenter = Point3D()
     private var mColor = 0
-    lateinit var modelInstance: ModelInstance
+
+    // Once bound, the color lives in the cube's facelet state
+    private var mState: FaceletState? = null
+    var index = -1
         private set
-    private lateinit var model: Model
 
-    private val centerVector = Vector3()
-    private var _radius = 0f
+    /**
+     * Position in the list of all squares of the cube, which never changes
+     */
+    var id = -1
+        internal set
+
+    /**
+     * Corners of the square as x, y, z triples
+     */
+    val vertices = FloatArray(12)
+
+    /**
+     * Rotation of the whole cube since creation, as axis (x, y, z) and degrees
+     */
+    val rotation = FloatArray(4)
 
     var face: Int
         get() = mFace
@@ -48,53 +58,42 @@ class Square {
     }
 
     private fun initSquare(vertices: FloatArray, color: Int, face: Int) {
-        val builder = ModelBuilder()
-        val material = Material(ColorAttribute.createDiffuse(Color(color)))
-        model = builder.createRect(
-            vertices[0],  vertices[1],  vertices[2],
-            vertices[3],  vertices[4],  vertices[5],
-            vertices[6],  vertices[7],  vertices[8],
-            vertices[9],  vertices[10], vertices[11],
-            0f, 0f, 0f,
-            material, VertexAttributes.Usage.Position.toLong()
-        )
-        modelInstance = ModelInstance(model)
+        System.arraycopy(vertices, 0, this.vertices, 0, 12)
         mColor = color
         mFace = face
         mCenter.x = (vertices[0] + vertices[3] + vertices[6] + vertices[9]) / 4f
         mCenter.y = (vertices[1] + vertices[4] + vertices[7] + vertices[10]) / 4f
         mCenter.z = (vertices[2] + vertices[5] + vertices[8] + vertices[11]) / 4f
-
-        val box = BoundingBox()
-        val dimensions = Vector3()
-        modelInstance.calculateBoundingBox(box)
-        box.getCenter(centerVector)
-        box.getDimensions(dimensions)
-        _radius = dimensions.len() / 2f
-    }
-
-    fun center(): Vector3 {
-        return centerVector
-    }
-
-    fun radius(): Float {
-        return _radius
     }
 
     fun colorName(): String {
-        return String.format("#%08X", mColor)
+        return String.format("#%08X", color)
     }
 
     var color: Int
-        get() = mColor
+        get() = mState?.getColor(index) ?: mColor
         set(value) {
-            if (value == mColor) return
-            mColor = value
-            modelInstance.materials[0].set(ColorAttribute.createDiffuse(Color(value)))
+            val state = mState
+            if (state != null) {
+                state.setColor(index, value)
+            } else {
+                mColor = value
+            }
         }
 
+    /**
+     * Make the square show facelet [index] of [state]
+     */
+    fun bind(state: FaceletState, index: Int) {
+        mState = state
+        this.index = index
+    }
+
     fun rotateCoordinates(x: Float, y: Float, z: Float, degrees: Int) {
-        modelInstance.transform.setToRotation(x, y, z, degrees.toFloat())
+        rotation[0] = x
+        rotation[1] = y
+        rotation[2] = z
+        rotation[3] = degrees.toFloat()
     }
 
     fun rotateCoordinates(axis: Axis, angle: Int) {
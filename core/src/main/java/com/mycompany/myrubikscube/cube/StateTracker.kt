@@ -0,0 +1,135 @@
+package com.mycompany.myrubikscube.cube
+
+/**
+ * Running summary of a [FaceletState], updated by the state for each facelet it changes:
+ *
+ * - [solvedFaces]: faces whose facelets all have the same color,
+ * - [correctPieces]: pieces whose facelets all have the reference color of their face, which is
+ *   the color of the face center, or for faces without a center, the color the face was created
+ *   with,
+ * - [hash]: a 64-bit Zobrist hash of the colors, the XOR of a key per (facelet, color).
+ *
+ * The keys depend on the RGBA colors, not on palette indices, so equal states of cubes of the same
+ * size have equal hashes.
+ */
+class StateTracker internal constructor(private val state: FaceletState) {
+
+    companion object {
+        /**
+         * Zobrist key of [color] on facelet [index], computed by splitmix64 instead of a table
+         */
+        @JvmStatic
+        fun key(index: Int, color: Int): Long {
+            var z = (index.toLong() shl 32 or (color.toLong() and 0xffffffffL)) + -0x61c8864680b583ebL
+            z = (z xor (z ushr 30)) * -0x40a7b892e31b1a47L
+            z = (z xor (z ushr 27)) * -0x6b2fb644ecceee15L
+            return z xor (z ushr 31)
+        }
+    }
+
+    var solvedFaces = 0
+        private set
+    var correctPieces = 0
+        private set
+    var pieceCount = 0
+        private set
+    var hash = 0L
+        private set
+
+    private var faceOf = IntArray(0)
+    private var pieceOf = IntArray(0)
+    private var center = IntArray(Cube.FACE_COUNT)
+    private var homeColor = IntArray(Cube.FACE_COUNT)
+
+    // [face * 128 + palette index], facelets of each color on each face
+    private val colorCount = IntArray(Cube.FACE_COUNT * 128)
+    private var wrong = BooleanArray(0)
+    private var wrongInPiece = IntArray(0)
+
+    val isSolved: Boolean
+        get() = solvedFaces == Cube.FACE_COUNT
+
+    /**
+     * Set up the layout and recount everything.
+     *
+     * @param pieceOf piece of each facelet, from 0 to [pieceCount] - 1
+     * @param homeColor color of each face at creation, the reference of faces without a center
+     */
+    internal fun rebuild(pieceOf: IntArray, pieceCount: Int, homeColor: IntArray) {
+        val n = state.count
+        this.pieceOf = pieceOf
+        this.pieceCount = pieceCount
+        this.homeColor = homeColor
+        faceOf = IntArray(n)
+        for (f in 0 until Cube.FACE_COUNT) {
+            for (i in state.faceOffset(f) until state.faceOffset(f) + state.faceSize(f)) {
+                faceOf[i] = f
+            }
+            val w = if (f == Cube.FACE_LEFT || f == Cube.FACE_RIGHT) state.sizeZ else state.sizeX
+            val h = if (f == Cube.FACE_TOP || f == Cube.FACE_BOTTOM) state.sizeZ else state.sizeY
+            center[f] = if (w % 2 == 1 && h % 2 == 1) state.faceOffset(f) + h / 2 * w + w / 2 else -1
+        }
+        colorCount.fill(0)
+        wrong = BooleanArray(n)
+        wrongInPiece = IntArray(pieceCount)
+        hash = 0L
+        for (i in 0 until n) {
+            colorCount[faceOf[i] * 128 + state.colors[i]]++
+            hash = hash xor key(i, state.getColor(i))
+        }
+        solvedFaces = 0
+        for (f in 0 until Cube.FACE_COUNT) {
+            if (isUniform(f)) solvedFaces++
+        }
+        for (i in 0 until n) {
+            wrong[i] = state.getColor(i) != reference(faceOf[i])
+            if (wrong[i]) wrongInPiece[pieceOf[i]]++
+        }
+        correctPieces = wrongInPiece.count { it == 0 }
+    }
+
+    private fun isUniform(face: Int): Boolean {
+        val size = state.faceSize(face)
+        return size > 0 && colorCount[face * 128 + state.colors[state.faceOffset(face)]] == size
+    }
+
+    private fun reference(face: Int): Int {
+        val c = center[face]
+        return if (c >= 0) state.getColor(c) else homeColor[face]
+    }
+
+    /**
+     * Called by the state after facelet [index] changed from palette index [old] to [new]
+     */
+    internal fun changed(index: Int, old: Byte, new: Byte) {
+        if (old == new) return
+        val face = faceOf[index]
+        hash = hash xor key(index, state.paletteColor(old)) xor key(index, state.paletteColor(new))
+
+        val size = state.faceSize(face)
+        if (colorCount[face * 128 + old] == size) solvedFaces--
+        colorCount[face * 128 + old]--
+        colorCount[face * 128 + new]++
+        if (colorCount[face * 128 + new] == size) solvedFaces++
+
+        if (index == center[face]) {
+            // the reference of the whole face changed
+            for (i in state.faceOffset(face) until state.faceOffset(face) + size) {
+                updateWrong(i, state.colors[i] != state.colors[index])
+            }
+        } else {
+            updateWrong(index, state.getColor(index) != reference(face))
+        }
+    }
+
+    private fun updateWrong(index: Int, isWrong: Boolean) {
+        if (wrong[index] == isWrong) return
+        wrong[index] = isWrong
+        val piece = pieceOf[index]
+        if (isWrong) {
+            if (wrongInPiece[piece]++ == 0) correctPieces--
+        } else {
+            if (--wrongInPiece[piece] == 0) correctPieces++
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.mycompany.myrubikscube.graphics
+
+import com.mycompany.myrubikscube.cube.RubiksCube
+import com.mycompany.myrubikscube.cube.Square
+
+/**
+ * View layer of a cube: owns a [SquareView] for each square of the cube and keeps their colors
+ * up to date. The cube itself has no graphics resources.
+ */
+class CubeView(private val cube: RubiksCube) {
+    private val views: Array<SquareView>
+    private var syncedVersion = -1L
+
+    init {
+        val squares = cube.getSquares()
+        views = Array(squares.size) { SquareView(squares[it]) }
+    }
+
+    val size: Int
+        get() = views.size
+
+    /**
+     * View of the square at [index] in [RubiksCube.getSquares]
+     */
+    operator fun get(index: Int): SquareView = views[index]
+
+    fun viewOf(square: Square): SquareView = views[square.id]
+
+    /**
+     * Refresh the views whose square changed since the last call
+     */
+    fun sync() {
+        if (syncedVersion == cube.stateVersion) return
+        for (view in views) {
+            view.sync()
+        }
+        syncedVersion = cube.stateVersion
+    }
+
+    fun dispose() {
+        for (view in views) {
+            view.dispose()
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.mycompany.myrubikscube.graphics
+
+import com.badlogic.gdx.graphics.Color
+import com.badlogic.gdx.graphics.VertexAttributes
+import com.badlogic.gdx.graphics.g3d.Material
+import com.badlogic.gdx.graphics.g3d.Model
+import com.badlogic.gdx.graphics.g3d.ModelInstance
+import com.badlogic.gdx.graphics.g3d.attributes.ColorAttribute
+import com.badlogic.gdx.graphics.g3d.utils.ModelBuilder
+import com.badlogic.gdx.math.Vector3
+import com.badlogic.gdx.math.collision.BoundingBox
+import com.mycompany.myrubikscube.cube.Square
+
+/**
+ * libGDX geometry of one [Square]
+ */
+class SquareView(val square: Square) {
+    private val model: Model
+    val modelInstance: ModelInstance
+    private val diffuse: ColorAttribute
+    private var mColor: Int
+
+    private val centerVector = Vector3()
+    private val _radius: Float
+
+    init {
+        val v = square.vertices
+        val builder = ModelBuilder()
+        mColor = square.color
+        val material = Material(ColorAttribute.createDiffuse(Color(mColor)))
+        model = builder.createRect(
+            v[0], v[1], v[2],
+            v[3], v[4], v[5],
+            v[6], v[7], v[8],
+            v[9], v[10], v[11],
+            0f, 0f, 0f,
+            material, VertexAttributes.Usage.Position.toLong()
+        )
+        modelInstance = ModelInstance(model)
+        diffuse = modelInstance.materials[0].get(ColorAttribute.Diffuse) as ColorAttribute
+
+        val box = BoundingBox()
+        val dimensions = Vector3()
+        modelInstance.calculateBoundingBox(box)
+        box.getCenter(centerVector)
+        box.getDimensions(dimensions)
+        _radius = dimensions.len() / 2f
+    }
+
+    fun center(): Vector3 {
+        return centerVector
+    }
+
+    fun radius(): Float {
+        return _radius
+    }
+
+    /**
+     * Update the material if the color of the square has changed, and apply its rotation
+     */
+    fun sync() {
+        val color = square.color
+        if (color != mColor) {
+            mColor = color
+            diffuse.color.set(color)
+        }
+        val r = square.rotation
+        if (r[3] != 0f) {
+            modelInstance.transform.setToRotation(r[0], r[1], r[2], r[3])
+        }
+    }
+
+    fun dispose() {
+        model.dispose()
+    }
+}
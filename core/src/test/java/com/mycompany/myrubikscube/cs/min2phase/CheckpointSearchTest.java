@@ -0,0 +1,118 @@
+package com.mycompany.myrubikscube.cs.min2phase;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.junit.Test;
+
+public class CheckpointSearchTest {
+
+    // a checkpoint is written after its last solution is found, with probeMin 100000
+    static final String SCRAMBLE = "L2 R F' D2 U2 F2 U' B'";
+
+    /**
+     * Stops at the given checkpoint, and keeps a copy of it, as the file is deleted when the search returns.
+     * Without a crash, counts the checkpoints up to the last one written with a solution.
+     */
+    static class CrashingSearch extends CheckpointSearch {
+        final File file;
+        final File copy;
+        final int crashAt;
+        int lastWithSolution = 0;
+
+        CrashingSearch(File file, File copy, int crashAt) {
+            super(file, 0);
+            this.file = file;
+            this.copy = copy;
+            this.crashAt = crashAt;
+        }
+
+        @Override
+        protected int initPhase2Pre() {
+            int checkpoints = numberOfCheckpoints();
+            int ret = super.initPhase2Pre();
+            if (numberOfCheckpoints() > checkpoints && solution != null) {
+                lastWithSolution = numberOfCheckpoints();
+            }
+            if (numberOfCheckpoints() == crashAt && checkpoints < crashAt) {
+                copy(file, copy);
+                throw new IllegalStateException("crash");
+            }
+            return ret;
+        }
+    }
+
+    static void copy(File from, File to) {
+        try {
+            InputStream in = new FileInputStream(from);
+            OutputStream out = new FileOutputStream(to);
+            byte[] buf = new byte[4096];
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                out.write(buf, 0, n);
+            }
+            in.close();
+            out.close();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    public void resumeMatchesUninterruptedSearch() throws Exception {
+        String facelets = Tools.fromScramble(SCRAMBLE);
+        long probeMin = 100000;
+        String expected = new Search().solution(facelets, 21, Long.MAX_VALUE, probeMin, Search.OPTIMAL_SOLUTION);
+
+        File file = File.createTempFile("min2phase", ".ckpt");
+        File copy = new File(file.getPath() + ".copy");
+        try {
+            CrashingSearch counting = new CrashingSearch(file, copy, -1);
+            assertEquals(expected, counting.solution(facelets, 21, Long.MAX_VALUE, probeMin, Search.OPTIMAL_SOLUTION));
+            // after the last checkpoint with a solution, the search finds nothing shorter
+            assertTrue(counting.lastWithSolution > 0);
+            try {
+                new CrashingSearch(file, copy, counting.lastWithSolution)
+                    .solution(facelets, 21, Long.MAX_VALUE, probeMin, Search.OPTIMAL_SOLUTION);
+                throw new AssertionError("no crash");
+            } catch (IllegalStateException e) {
+                // crashed with a solution in the checkpoint
+            }
+            assertFalse(file.exists());
+            copy(copy, file);
+
+            CheckpointSearch search = new CheckpointSearch(file, 0);
+            assertTrue(search.hasCheckpoint());
+            String resumed = search.resume();
+            assertEquals(expected, resumed);
+            SearchLimitsTest.assertSolves(facelets, resumed, 21);
+            assertFalse(search.hasCheckpoint());
+        } finally {
+            file.delete();
+            copy.delete();
+        }
+    }
+
+    @Test
+    public void checkpointsAreWrittenAndDeleted() throws Exception {
+        String facelets = Tools.fromScramble(SCRAMBLE);
+        File file = File.createTempFile("min2phase", ".ckpt");
+        try {
+            CheckpointSearch search = new CheckpointSearch(file, 0);
+            String sol = search.solution(facelets, 21, Long.MAX_VALUE, 0, Search.OPTIMAL_SOLUTION);
+            assertTrue(search.numberOfCheckpoints() > 0);
+            assertFalse(search.hasCheckpoint());
+            assertEquals(new Search().solution(facelets, 21, Long.MAX_VALUE, 0, Search.OPTIMAL_SOLUTION), sol);
+        } finally {
+            file.delete();
+        }
+    }
+}
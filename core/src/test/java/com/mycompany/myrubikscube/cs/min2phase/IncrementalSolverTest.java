@@ -0,0 +1,49 @@
+package com.mycompany.myrubikscube.cs.min2phase;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class IncrementalSolverTest {
+
+    @Test
+    public void solutionFollowsMoves() {
+        IncrementalSolver solver = new IncrementalSolver();
+        solver.reset();
+        assertEquals(0, solver.length());
+        assertTrue(solver.isStable());
+        Random gen = new Random(38);
+        StringBuffer scramble = new StringBuffer();
+        for (int i = 0; i < 30; i++) {
+            int move = gen.nextInt(18);
+            solver.applyMove(move);
+            scramble.append(Util.move2str[move]).append(' ');
+            // the merged solution is valid at once, and improving keeps it valid and no longer
+            String facelets = Tools.fromScramble(scramble.toString());
+            int length = solver.length();
+            SearchLimitsTest.assertSolves(facelets, solver.solution(), length);
+            while (solver.improve(100)) {
+                assertTrue(solver.length() < length);
+                length = solver.length();
+            }
+            SearchLimitsTest.assertSolves(facelets, solver.solution(), length);
+        }
+    }
+
+    @Test
+    public void unknownStateIsSolved() {
+        IncrementalSolver solver = new IncrementalSolver();
+        String facelets = Tools.randomCube(new Random(38));
+        assertEquals(0, solver.setState(facelets));
+        assertEquals(-1, solver.length());
+        assertFalse(solver.isStable());
+        for (int i = 0; i < 100 && solver.length() < 0; i++) {
+            solver.improve(100);
+        }
+        SearchLimitsTest.assertSolves(facelets, solver.solution(), 21);
+    }
+}
@@ -0,0 +1,84 @@
+package com.mycompany.myrubikscube.cs.min2phase;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LongLongHashSetTest {
+
+    @Test
+    public void addContainsRemove() {
+        LongLongHashSet set = new LongLongHashSet();
+        assertTrue(set.isEmpty());
+        assertTrue(set.add(1, 2));
+        assertFalse(set.add(1, 2));
+        assertTrue(set.add(0, 0));
+        assertFalse(set.add(0, 0));
+        assertEquals(2, set.size());
+        assertTrue(set.contains(1, 2));
+        assertTrue(set.contains(0, 0));
+        assertFalse(set.contains(2, 1));
+
+        assertTrue(set.remove(1, 2));
+        assertFalse(set.remove(1, 2));
+        assertFalse(set.contains(1, 2));
+        assertTrue(set.remove(0, 0));
+        assertFalse(set.contains(0, 0));
+        assertTrue(set.isEmpty());
+    }
+
+    @Test
+    public void removalKeepsCollidingKeys() {
+        // all in a few slots of a small table, so removals shift long runs back
+        LongLongHashSet set = new LongLongHashSet(1000);
+        List<long[]> keys = new ArrayList<long[]>();
+        for (long i = 1; keys.size() < 200; i++) {
+            if (((int) LongLongHashSet.mix(i, 7) & set.mask) < 8) {
+                keys.add(new long[] {i, 7});
+                set.add(i, 7);
+            }
+        }
+        for (int i = 0; i < keys.size(); i += 2) {
+            assertTrue(set.remove(keys.get(i)[0], keys.get(i)[1]));
+        }
+        for (int i = 0; i < keys.size(); i++) {
+            assertEquals(i % 2 == 1, set.contains(keys.get(i)[0], keys.get(i)[1]));
+        }
+        assertEquals(100, set.size());
+    }
+
+    @Test
+    public void matchesHashSet() {
+        Random gen = new Random(40);
+        LongLongHashSet set = new LongLongHashSet();
+        final HashSet<String> expected = new HashSet<String>();
+        for (int i = 0; i < 200000; i++) {
+            // few distinct values, so that adds and removes hit existing keys
+            long hi = gen.nextInt(64);
+            long lo = gen.nextInt(256);
+            String key = hi + "," + lo;
+            if (gen.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), set.remove(hi, lo));
+            } else {
+                assertEquals(expected.add(key), set.add(hi, lo));
+            }
+            assertEquals(expected.size(), set.size());
+        }
+        final int[] visited = new int[1];
+        set.forEach(new LongLongHashSet.Visitor() {
+            @Override
+            public void visit(long hi, long lo) {
+                assertTrue(expected.contains(hi + "," + lo));
+                visited[0]++;
+            }
+        });
+        assertEquals(expected.size(), visited[0]);
+    }
+}
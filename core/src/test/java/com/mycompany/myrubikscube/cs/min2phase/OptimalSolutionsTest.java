@@ -0,0 +1,84 @@
+package com.mycompany.myrubikscube.cs.min2phase;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class OptimalSolutionsTest {
+
+    static final String[] SCRAMBLES = {"R L", "R U R' U'", "F2 U' R L' B", "U R2 F' D B2 L'"};
+
+    static List<String> solutions(String facelets, int threads) {
+        OptimalSolutions opt = new OptimalSolutions();
+        assertEquals(0, opt.setState(facelets));
+        opt.setThreads(threads);
+        List<String> ret = new ArrayList<String>();
+        while (opt.hasNext()) {
+            ret.add(opt.next());
+        }
+        return ret;
+    }
+
+    /**
+     * No face follows itself, and opposite faces only follow in U D, R L and F B order.
+     */
+    static void assertCanonical(String solution) {
+        int last = -1;
+        for (String move : solution.trim().split("\\s+")) {
+            int face = "URFDLB".indexOf(move.charAt(0));
+            assertTrue(solution, face != last && face != last - 3);
+            last = face;
+        }
+    }
+
+    @Test
+    public void enumeratesDistinctOptimalSolutions() {
+        for (String scramble : SCRAMBLES) {
+            String facelets = Tools.fromScramble(scramble);
+            int optimal = SearchLimitsTest.length(
+                new Search().solution(facelets, 21, Long.MAX_VALUE, 0, Search.OPTIMAL_SOLUTION));
+            List<String> sols = solutions(facelets, 4);
+            assertFalse(scramble, sols.isEmpty());
+            assertEquals(scramble, sols.size(), new HashSet<String>(sols).size());
+            for (String sol : sols) {
+                SearchLimitsTest.assertSolves(facelets, sol, optimal);
+                assertEquals(sol, optimal, SearchLimitsTest.length(sol));
+                assertCanonical(sol);
+            }
+            assertEquals(scramble, new HashSet<String>(sols), new HashSet<String>(solutions(facelets, 1)));
+        }
+    }
+
+    @Test
+    public void commutingMovesAreReturnedOnce() {
+        List<String> sols = solutions(Tools.fromScramble("R L"), 2);
+        assertEquals(1, sols.size());
+        assertEquals("R' L'", sols.get(0).trim());
+    }
+
+    @Test
+    public void closeEndsWaitingConsumer() throws Exception {
+        final OptimalSolutions opt = new OptimalSolutions();
+        assertEquals(0, opt.setState(Tools.randomCube(new Random(35))));
+        final boolean[] hasNext = {true};
+        Thread consumer = new Thread(new Runnable() {
+            public void run() {
+                hasNext[0] = opt.hasNext();
+            }
+        });
+        consumer.start();
+        Thread.sleep(200);
+        opt.close();
+        consumer.join(10 * OptimalSolutions.POLL_MILLIS);
+        assertFalse(consumer.isAlive());
+        assertFalse(hasNext[0]);
+        assertFalse(opt.hasNext());
+    }
+}
@@ -0,0 +1,65 @@
+package com.mycompany.myrubikscube.cs.min2phase;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class RestrictedSearchTest {
+
+    @Test
+    public void parsesMoveMasks() {
+        assertEquals(RestrictedSearch.ALL_MOVES, RestrictedSearch.moveMask("U R F D L B"));
+        assertEquals(RestrictedSearch.ALL_MOVES, RestrictedSearch.moveMask("URFDLB"));
+        assertEquals(2, RestrictedSearch.moveMask("U2"));
+        assertEquals(4 | 1 << 3 | 2 << 3 | 4 << 3, RestrictedSearch.moveMask("U' R"));
+        assertEquals(RestrictedSearch.ALL_MOVES & ~(7 << 15), RestrictedSearch.moveMask("U R F D L"));
+    }
+
+    /**
+     * Every move of the solution is allowed by the mask.
+     */
+    static void assertAllowed(int mask, String solution) {
+        for (String move : solution.trim().split("\\s+")) {
+            int m = "URFDLB".indexOf(move.charAt(0)) * 3 + (move.endsWith("2") ? 1 : move.endsWith("'") ? 2 : 0);
+            assertTrue(solution, (mask >> m & 1) != 0);
+        }
+    }
+
+    @Test
+    public void solvesWithoutForbiddenFace() {
+        int mask = RestrictedSearch.moveMask("U R F D L");
+        RestrictedSearch search = new RestrictedSearch(mask);
+        assertEquals(mask, search.getMoveMask());
+        Random gen = new Random(32);
+        for (int i = 0; i < 10; i++) {
+            String facelets = Tools.randomCube(gen);
+            String sol = search.solution(facelets, 30, 100000, 0);
+            SearchLimitsTest.assertSolves(facelets, sol, 30);
+            assertAllowed(mask, sol);
+        }
+    }
+
+    @Test
+    public void solvesWithHalfTurnsOnly() {
+        // the robot can only turn R, F, L and B by half turns
+        int mask = RestrictedSearch.moveMask("U D R2 F2 L2 B2");
+        RestrictedSearch search = new RestrictedSearch(mask);
+        String[] scrambles = {SearchLimitsTest.G1_SCRAMBLE, "R2 U F2 D' B2", "L2 D2 U' R2 F2 U B2 L2 D R2"};
+        for (String scramble : scrambles) {
+            String facelets = Tools.fromScramble(scramble);
+            String sol = search.solution(facelets, 30, 100000, 0);
+            SearchLimitsTest.assertSolves(facelets, sol, 30);
+            assertAllowed(mask, sol);
+        }
+    }
+
+    @Test
+    public void reportsInvalidCubes() {
+        RestrictedSearch search = new RestrictedSearch(RestrictedSearch.ALL_MOVES);
+        assertEquals("Error 1", search.solution("UUUUUUUUURRRRRRRRRFFFFFFFFFDDDDDDDDDLLLLLLLLLBBBBBBBBU", 30, 100000, 0));
+        assertEquals("Error 7", search.solution(Tools.fromScramble("R U F D L B"), 3, 100000, 0));
+    }
+}
@@ -0,0 +1,47 @@
+package com.mycompany.myrubikscube.cs.min2phase;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class ScrambleGeneratorTest {
+
+    // more than one block of a single thread
+    static final int COUNT = 2 * ScrambleGenerator.BLOCK_PER_THREAD + 5;
+
+    static String[] scrambles(long seed, int threads) {
+        ScrambleGenerator gen = new ScrambleGenerator(seed, 2);
+        gen.setThreads(threads);
+        String[] ret = new String[COUNT];
+        try {
+            for (int i = 0; i < COUNT; i++) {
+                ret[i] = gen.next();
+            }
+        } finally {
+            gen.close();
+        }
+        return ret;
+    }
+
+    @Test
+    public void sameSeedSameScrambles() {
+        String[] single = scrambles(27, 1);
+        assertEquals(Arrays.asList(single), Arrays.asList(scrambles(27, 1)));
+        assertEquals(Arrays.asList(single), Arrays.asList(scrambles(27, 4)));
+        assertFalse(Arrays.asList(single).equals(Arrays.asList(scrambles(28, 4))));
+    }
+
+    @Test
+    public void scramblesAreLongEnough() {
+        Search search = new Search();
+        for (String scramble : scrambles(27, 2)) {
+            assertFalse(scramble, scramble.startsWith("Error"));
+            String facelets = Tools.fromScramble(scramble);
+            assertEquals(0, search.verify(facelets));
+            assertEquals("Error 7", search.solution(facelets, 1, 100000, 0, 0));
+        }
+    }
+}
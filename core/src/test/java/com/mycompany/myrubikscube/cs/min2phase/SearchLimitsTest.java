@@ -0,0 +1,110 @@
+package com.mycompany.myrubikscube.cs.min2phase;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class SearchLimitsTest {
+
+    static final String SOLVED = "UUUUUUUUURRRRRRRRRFFFFFFFFFDDDDDDDDDLLLLLLLLLBBBBBBBBB";
+
+    // in <U,D,R2,F2,L2,B2>, so phase 1 is skipped
+    static final String G1_SCRAMBLE = "U R2 D' F2 L2 U2 B2 D F2 R2 U' L2 B2 D2 U";
+
+    // solved by a Sune, R U R' U R U2 R'
+    static final String SUNE_CASE = "R U2 R' U' R U' R'";
+
+    static int length(String solution) {
+        String s = solution.trim();
+        return s.length() == 0 ? 0 : s.split("\\s+").length;
+    }
+
+    /**
+     * The solution is at most maxDepth moves and solves the cube.
+     */
+    static void assertSolves(String facelets, String solution, int maxDepth) {
+        assertFalse(solution, solution.startsWith("Error"));
+        assertTrue(solution, length(solution) <= maxDepth);
+        Search search = new Search();
+        assertEquals(0, search.verify(facelets));
+        CubieCube c = new CubieCube(search.cc);
+        CubieCube tmp = new CubieCube();
+        for (String move : solution.trim().split("\\s+")) {
+            if (move.length() == 0) {
+                continue;
+            }
+            int m = "URFDLB".indexOf(move.charAt(0)) * 3 + (move.endsWith("2") ? 1 : move.endsWith("'") ? 2 : 0);
+            CubieCube.CornMult(c, CubieCube.moveCube[m], tmp);
+            CubieCube.EdgeMult(c, CubieCube.moveCube[m], tmp);
+            c.copy(tmp);
+        }
+        assertEquals(solution, SOLVED, Util.toFaceCube(c));
+    }
+
+    @Test
+    public void g1CubeSolves() {
+        String facelets = Tools.fromScramble(G1_SCRAMBLE);
+        Search search = new Search();
+        assertSolves(facelets, search.solution(facelets, 21, 100000, 0, 0), 21);
+    }
+
+    @Test
+    public void g1SolutionRespectsMaxDepth() {
+        // its G1 solution is within MAX_DEPTH2, so the fast path finds one at every maxDepth
+        String facelets = Tools.fromScramble("U R2 D' F2 L2 U2 B2 D F2 R2");
+        Search search = new Search();
+        for (int maxDepth = 5; maxDepth <= 21; maxDepth++) {
+            String sol = search.solution(facelets, maxDepth, 100000, 0, 0);
+            if (!sol.startsWith("Error")) {
+                assertSolves(facelets, sol, maxDepth);
+            }
+        }
+    }
+
+    @Test
+    public void optimalInG1StopsAtMaxDepth() {
+        String facelets = Tools.fromScramble(G1_SCRAMBLE);
+        Search search = new Search();
+        assertEquals("Error 7", search.solution(facelets, 5, 100000, 0, Search.OPTIMAL_IN_G1));
+        assertSolves(facelets, search.solution(facelets, 30, 100000, 0, Search.OPTIMAL_IN_G1), 30);
+    }
+
+    @Test
+    public void optimalInG1StopsAtProbeMax() {
+        String facelets = Tools.fromScramble(G1_SCRAMBLE);
+        assertEquals("Error 8", new Search().solution(facelets, 30, 1, 0, Search.OPTIMAL_IN_G1));
+    }
+
+    @Test
+    public void lastLayerTableHit() {
+        assertTrue(LastLayer.isLoaded());
+        String facelets = Tools.fromScramble(SUNE_CASE);
+        Search search = new Search();
+        String hit = search.solution(facelets, 21, 100000, 0, 0);
+        assertSolves(facelets, hit, 21);
+        assertEquals(1, search.numberOfProbes());
+
+        // the hit only seeds the search, which goes on up to probeMin
+        String searched = search.solution(facelets, 21, 100000, 100000, 0);
+        assertSolves(facelets, searched, length(hit));
+        assertEquals(7, length(searched));
+
+        // nothing longer than maxDepth, from the table or not
+        assertEquals("Error 7", search.solution(facelets, 6, 100000, 0, 0));
+    }
+
+    @Test
+    public void lastLayerCasesSolve() {
+        Random gen = new Random(30);
+        Search search = new Search();
+        for (int i = 0; i < 50; i++) {
+            String facelets = Tools.randomLastLayer(gen);
+            assertSolves(facelets, search.solution(facelets, 21, 100000, 0, 0), 21);
+            assertSolves(facelets, search.solution(facelets, 21, 100000, 1000, 0), 21);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.mycompany.myrubikscube.cs.min2phase;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+
+import org.junit.Test;
+
+public class ShardedSearchTest {
+
+    // optimal solutions longer than LOCAL_DEPTH, so that the workers search them
+    static final String[] SCRAMBLES = {"R U F D L B R' U'", "F2 U' R L' B D2 F' R'", "U R2 F' D B2 L' U2 R B'"};
+
+    static String optimal(String facelets) {
+        return new Search().solution(facelets, 21, Long.MAX_VALUE, 0, Search.OPTIMAL_SOLUTION);
+    }
+
+    @Test
+    public void localWorkersFindOptimalSolutions() throws Exception {
+        ShardedSearch sharded = new ShardedSearch();
+        try {
+            sharded.startLocalWorker();
+            sharded.startLocalWorker();
+            for (String scramble : SCRAMBLES) {
+                String facelets = Tools.fromScramble(scramble);
+                String sol = sharded.solution(facelets, 21, 0);
+                SearchLimitsTest.assertSolves(facelets, sol, 21);
+                int length = SearchLimitsTest.length(sol);
+                assertTrue(sol, length > ShardedSearch.LOCAL_DEPTH);
+                assertEquals(scramble, SearchLimitsTest.length(optimal(facelets)), length);
+            }
+            assertTrue(sharded.numberOfTasks() > 0);
+        } finally {
+            sharded.close();
+        }
+    }
+
+    @Test
+    public void taskOfDeadWorkerIsRequeued() throws Exception {
+        final ShardedSearch sharded = new ShardedSearch();
+        try {
+            // a worker which takes the first task and dies before it answers
+            Socket socket = new Socket(InetAddress.getByName("127.0.0.1"), sharded.getPort());
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), "UTF-8"));
+            PrintWriter out = new PrintWriter(socket.getOutputStream());
+            out.println("READY");
+            out.flush();
+            while (sharded.numberOfWorkers() == 0) {
+                Thread.sleep(10);
+            }
+
+            final String facelets = Tools.fromScramble(SCRAMBLES[0]);
+            final String[] result = new String[1];
+            Thread solver = new Thread(new Runnable() {
+                public void run() {
+                    result[0] = sharded.solution(facelets, 21, 0);
+                }
+            });
+            solver.start();
+            assertTrue(in.readLine().startsWith("JOB "));
+            assertTrue(in.readLine().startsWith("TASK "));
+            socket.close();
+
+            // the lost task is only searched if it goes back to the queue
+            sharded.startLocalWorker();
+            sharded.startLocalWorker();
+            solver.join(60000);
+            assertFalse("lost task", solver.isAlive());
+            SearchLimitsTest.assertSolves(facelets, result[0], 21);
+            assertEquals(SearchLimitsTest.length(optimal(facelets)), SearchLimitsTest.length(result[0]));
+        } finally {
+            sharded.close();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.mycompany.myrubikscube.cs.min2phase;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class SolveTunerTest {
+
+    /**
+     * A profile of solves which found their first solution at the first probe, slower than any target.
+     */
+    static String slowProfile() {
+        StringBuffer sb = new StringBuffer(SolveTuner.HEADER + "\n");
+        for (int i = 0; i < SolveTuner.MIN_SAMPLES; i++) {
+            sb.append("1000.0 1 1:20\n");
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void clearOverrideRestoresDefaults() {
+        SolveTuner tuner = new SolveTuner(100);
+        tuner.setOverride(20, 5, 3);
+        assertEquals(5, tuner.getProbeMax());
+        tuner.clearOverride();
+        assertEquals(SolveTuner.MAX_DEPTH, tuner.getMaxDepth());
+        assertEquals(SolveTuner.PROBE_MAX, tuner.getProbeMax());
+        assertEquals(0, tuner.getProbeMin());
+    }
+
+    @Test
+    public void retryIsRecorded() throws Exception {
+        SolveTuner tuner = new SolveTuner(1);
+        tuner.load(new BufferedReader(new StringReader(slowProfile())));
+        assertEquals(1, tuner.getProbeMax());
+        Random gen = new Random(39);
+        for (int i = 0; i < 8; i++) {
+            String facelets = Tools.randomCube(gen);
+            SearchLimitsTest.assertSolves(facelets, tuner.solution(facelets, 0), 21);
+        }
+        StringWriter out = new StringWriter();
+        tuner.save(out);
+        String[] lines = out.toString().split("\n");
+        assertEquals(1 + SolveTuner.MIN_SAMPLES + 8, lines.length);
+        for (int i = 1 + SolveTuner.MIN_SAMPLES; i < lines.length; i++) {
+            // a solve retried after "Error 8" still records its first solution
+            String[] tokens = lines[i].split(" ");
+            assertTrue(lines[i], tokens.length > 2);
+            long probes = Long.parseLong(tokens[1]);
+            long firstProbe = Long.parseLong(tokens[2].substring(0, tokens[2].indexOf(':')));
+            assertTrue(lines[i], firstProbe <= probes);
+        }
+    }
+
+    @Test
+    public void overriddenSolveReportsError8() {
+        SolveTuner tuner = new SolveTuner(100);
+        tuner.setOverride(21, 1, 0);
+        boolean failed = false;
+        Random gen = new Random(40);
+        for (int i = 0; i < 8; i++) {
+            String sol = tuner.solution(Tools.randomCube(gen), 0);
+            failed |= sol.equals("Error 8");
+            assertFalse(sol, sol.startsWith("Error") && !sol.equals("Error 8"));
+        }
+        assertTrue(failed);
+        assertEquals(8, tuner.numberOfSamples());
+    }
+}
@@ -0,0 +1,50 @@
+package com.mycompany.myrubikscube.cs.min2phase;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class SubgoalSolverTest {
+
+    @Test
+    public void stagesSolveTheCube() {
+        SubgoalSolver solver = new SubgoalSolver();
+        Random gen = new Random(34);
+        for (int i = 0; i < 20; i++) {
+            String facelets = Tools.randomCube(gen);
+            assertEquals(0, solver.setState(facelets));
+            String[] stages = solver.solveAll();
+            assertEquals(7, stages.length);
+            StringBuffer all = new StringBuffer();
+            for (String stage : stages) {
+                assertFalse(stage, stage.startsWith("Error"));
+                all.append(stage).append(' ');
+            }
+            // an optimal cross is at most 8 moves, a table algorithm at most 19 plus two U turns
+            assertTrue(stages[0], SearchLimitsTest.length(stages[0]) <= 8);
+            assertTrue(stages[5], SearchLimitsTest.length(stages[5]) <= 21);
+            assertTrue(stages[6], SearchLimitsTest.length(stages[6]) <= 21);
+            SearchLimitsTest.assertSolves(facelets, all.toString(), 200);
+        }
+    }
+
+    @Test
+    public void solvedStagesAreEmpty() {
+        SubgoalSolver solver = new SubgoalSolver();
+        assertEquals(0, solver.setState(SearchLimitsTest.SOLVED));
+        for (String stage : solver.solveAll()) {
+            assertEquals("", stage.trim());
+        }
+        // a Sune only needs the last layer stages
+        assertEquals(0, solver.setState(Tools.fromScramble(SearchLimitsTest.SUNE_CASE)));
+        String[] stages = solver.solveAll();
+        for (int i = 0; i < 5; i++) {
+            assertEquals("", stages[i].trim());
+        }
+        assertFalse(stages[5].trim().length() == 0);
+    }
+}
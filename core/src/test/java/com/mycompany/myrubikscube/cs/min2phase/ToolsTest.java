@@ -0,0 +1,48 @@
+package com.mycompany.myrubikscube.cs.min2phase;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ToolsTest {
+
+    static final Tools.StateGenerator LAST_LAYER = new Tools.StateGenerator() {
+        public String generate(Random gen) {
+            return Tools.randomLastLayer(gen);
+        }
+    };
+
+    @Test
+    public void sameSeedSameStates() {
+        for (Tools.StateGenerator generator : new Tools.StateGenerator[] {Tools.RANDOM_CUBE, LAST_LAYER}) {
+            String[] single = Tools.randomStates(100, 28, generator, 1);
+            assertArrayEquals(single, Tools.randomStates(100, 28, generator, 1));
+            assertArrayEquals(single, Tools.randomStates(100, 28, generator, 4));
+            assertArrayEquals(single, Tools.randomStates(100, 28, generator));
+            assertFalse(Arrays.equals(single, Tools.randomStates(100, 29, generator, 4)));
+        }
+    }
+
+    @Test
+    public void sameRandomSameState() {
+        assertEquals(Tools.randomCube(new Random(28)), Tools.randomCube(new Random(28)));
+        assertEquals(Tools.randomLastLayer(new Random(28)), Tools.randomLastLayer(new Random(28)));
+        assertEquals(Tools.randomCrossSolved(new Random(28)), Tools.randomCrossSolved(new Random(28)));
+    }
+
+    @Test
+    public void randomStatesAreValidAndDistinct() {
+        String[] states = Tools.randomStates(100, 28, Tools.RANDOM_CUBE, 4);
+        Search search = new Search();
+        for (String facelets : states) {
+            assertEquals(0, search.verify(facelets));
+        }
+        assertEquals(states.length, new HashSet<String>(Arrays.asList(states)).size());
+    }
+}
@@ -0,0 +1,193 @@
+package com.mycompany.myrubikscube.cube
+
+import com.mycompany.myrubikscube.graphics.Axis
+import com.mycompany.myrubikscube.graphics.Direction
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.Random
+
+class AlgorithmTest {
+
+    /**
+     * Exposes the facelets of [RubiksCube], to apply algorithms which re-orient skewed cubes
+     */
+    private class TestCube(x: Int, y: Int, z: Int) : RubiksCube(x, y, z) {
+        val colors: ByteArray
+            get() = mFacelets.colors.copyOf()
+    }
+
+    private val sizes = arrayOf(intArrayOf(2, 2, 2), intArrayOf(3, 3, 3), intArrayOf(4, 4, 4), intArrayOf(5, 5, 5),
+        intArrayOf(2, 3, 4), intArrayOf(1, 2, 3), intArrayOf(3, 3, 5))
+
+    private fun isSymmetric(size: IntArray, axis: Int) = size[(axis + 1) % 3] == size[(axis + 2) % 3]
+
+    private fun randomAlgorithm(random: Random, size: IntArray, length: Int): Algorithm {
+        val algo = Algorithm()
+        repeat(length) {
+            val axis = Axis.values()[random.nextInt(3)]
+            val n = size[axis.ordinal]
+            val start = random.nextInt(n)
+            val direction = if (random.nextBoolean()) Direction.CLOCKWISE else Direction.COUNTER_CLOCKWISE
+            algo.addStep(axis, direction, start, 1 + random.nextInt(n - start))
+        }
+        return algo
+    }
+
+    private fun applied(size: IntArray, algo: Algorithm): ByteArray {
+        val cube = TestCube(size[0], size[1], size[2])
+        cube.applyAlgorithm(algo)
+        return cube.colors
+    }
+
+    /**
+     * Random layer range turns, without whole turns of a skewed axis, which change the layout
+     */
+    private fun compilableAlgorithm(random: Random, size: IntArray, length: Int): Algorithm {
+        val algo = Algorithm()
+        repeat(length) {
+            val axis = Axis.values()[random.nextInt(3)]
+            val n = size[axis.ordinal]
+            val start = random.nextInt(n)
+            val maxCount = if (isSymmetric(size, axis.ordinal)) n - start else minOf(n - start, n - 1)
+            if (maxCount == 0) return@repeat
+            val direction = if (random.nextBoolean()) Direction.CLOCKWISE else Direction.COUNTER_CLOCKWISE
+            algo.addStep(axis, direction, start, 1 + random.nextInt(maxCount))
+        }
+        return algo
+    }
+
+    private fun indexedState(size: IntArray): FaceletState {
+        val state = FaceletState(size[0], size[1], size[2])
+        for (i in 0 until state.count) {
+            state.colors[i] = i.toByte()
+        }
+        return state
+    }
+
+    private fun turned(size: IntArray, algo: Algorithm): ByteArray {
+        val state = indexedState(size)
+        for (step in algo.steps) {
+            for (layer in step.startFace until step.startFace + step.faceCount) {
+                state.turn(step.axis, step.direction, layer)
+            }
+        }
+        return state.colors
+    }
+
+    private fun compiled(size: IntArray, algo: Algorithm): ByteArray {
+        val state = indexedState(size)
+        state.applyPermutation(algo.compile(size[0], size[1], size[2])!!)
+        return state.colors
+    }
+
+    @Test
+    fun compiledAlgorithmMatchesTurns() {
+        val random = Random(44)
+        for (size in sizes) {
+            for (i in 0 until 20) {
+                val algo = compilableAlgorithm(random, size, random.nextInt(40))
+                assertArrayEquals(size.contentToString(), turned(size, algo), compiled(size, algo))
+            }
+        }
+    }
+
+    @Test
+    fun compiledAlgorithmFollowsNewSteps() {
+        val size = intArrayOf(3, 3, 3)
+        val algo = compilableAlgorithm(Random(45), size, 10)
+        compiled(size, algo)
+        algo.addStep(Axis.X_AXIS, Direction.CLOCKWISE, 2)
+        assertArrayEquals(turned(size, algo), compiled(size, algo))
+    }
+
+    @Test
+    fun skewedWholeTurnDoesNotCompile() {
+        val algo = Algorithm()
+        algo.addStep(Axis.X_AXIS, Direction.CLOCKWISE, 0)
+        algo.addStep(Axis.Y_AXIS, Direction.CLOCKWISE, 0, 3)
+        assertNull(algo.compile(2, 3, 4))
+    }
+
+    @Test
+    fun inverseUndoes() {
+        val random = Random(46)
+        for (size in sizes) {
+            val solved = applied(size, Algorithm())
+            for (i in 0 until 10) {
+                val algo = randomAlgorithm(random, size, random.nextInt(30))
+                assertArrayEquals(solved, applied(size, algo.concat(algo.inverse())))
+                assertArrayEquals(solved, applied(size, algo.inverse().concat(algo)))
+                assertEquals(algo, algo.inverse().inverse())
+            }
+        }
+    }
+
+    @Test
+    fun inverseCodeFlipsDirectionOnly() {
+        for (axis in Axis.values()) {
+            for (direction in Direction.values()) {
+                val code = MoveCode.encode(axis, direction, 3, 5)
+                val inverse = MoveCode.inverse(code)
+                assertEquals(axis, MoveCode.axis(inverse))
+                assertTrue(MoveCode.direction(inverse) != direction)
+                assertEquals(3, MoveCode.startFace(inverse))
+                assertEquals(5, MoveCode.faceCount(inverse))
+                assertEquals(code, MoveCode.inverse(inverse))
+            }
+        }
+    }
+
+    @Test
+    fun concatAndSlice() {
+        val random = Random(47)
+        val size = intArrayOf(4, 4, 4)
+        val a = randomAlgorithm(random, size, 7)
+        val b = randomAlgorithm(random, size, 5)
+        val ab = a.concat(b)
+        assertEquals(12, ab.length)
+        assertArrayEquals(a.toCodes() + b.toCodes(), ab.toCodes())
+        assertEquals(a, ab.slice(0, 7))
+        assertEquals(b, ab.slice(7, 12))
+        assertEquals(0, ab.slice(4, 4).length)
+        for (k in 0..12) {
+            assertEquals(ab, ab.slice(0, k).concat(ab.slice(k, 12)))
+        }
+        // the parts are copies
+        a.addStep(Axis.X_AXIS, Direction.CLOCKWISE, 0)
+        assertEquals(12, ab.length)
+        assertEquals(a.slice(0, 7).concat(b), ab)
+    }
+
+    @Test(expected = IndexOutOfBoundsException::class)
+    fun sliceOutOfRangeThrows() {
+        randomAlgorithm(Random(48), intArrayOf(3, 3, 3), 5).slice(2, 6)
+    }
+
+    @Test
+    fun simplifyIsEquivalentAndNoLonger() {
+        val random = Random(48)
+        for (size in sizes) {
+            for (i in 0 until 30) {
+                val algo = randomAlgorithm(random, size, random.nextInt(40))
+                val simplified = algo.simplify(size[0], size[1], size[2])
+                assertTrue("${simplified.length} > ${algo.length}", simplified.length <= algo.length)
+                assertArrayEquals(size.contentToString(), applied(size, algo), applied(size, simplified))
+                assertEquals(simplified, simplified.simplify(size[0], size[1], size[2]))
+            }
+        }
+    }
+
+    @Test
+    fun simplifyCancelsAndMerges() {
+        val notation = Notation(3)
+        fun simplified(text: String) = notation.format(notation.parse(text).simplify(3, 3, 3))
+        assertEquals("", simplified("R U R' U' U R U' R'"))
+        assertEquals("R'", simplified("R R R"))
+        assertEquals("L R2", simplified("R L R"))
+        // both outer layers and the middle one turn the whole cube
+        assertEquals("x", simplified("R M' L'"))
+    }
+}
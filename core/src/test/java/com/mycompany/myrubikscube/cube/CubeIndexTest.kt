@@ -0,0 +1,74 @@
+package com.mycompany.myrubikscube.cube
+
+import com.mycompany.myrubikscube.graphics.Axis
+import com.mycompany.myrubikscube.graphics.Direction
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import java.util.Random
+
+class CubeIndexTest {
+
+    /**
+     * Exposes the face and layer lists of [Cube] and its whole cube turns
+     */
+    private class TestCube(x: Int, y: Int, z: Int) : Cube(x, y, z) {
+        fun turnWhole(axis: Axis, direction: Direction) {
+            rotate(axis, direction)
+        }
+
+        fun checkIndices() {
+            for (f in 0 until FACE_COUNT) {
+                val face = mAllFaces[f]!!
+                val width = if (f == FACE_LEFT || f == FACE_RIGHT) mSizeZ else mSizeX
+                for (j in face.indices) {
+                    assertEquals(f, faceOf(face[j]))
+                    assertEquals("face $f square $j", j / width, rowOf(face[j]))
+                    assertEquals("face $f square $j", j % width, columnOf(face[j]))
+                }
+            }
+            val allLayers = arrayOf(mXaxisLayers, mYaxisLayers, mZaxisLayers)
+            for (axis in Axis.values()) {
+                val layers = allLayers[axis.ordinal]
+                assertEquals(getAxisSize(axis), layers.size)
+                for (i in layers.indices) {
+                    for (piece in layers[i]) {
+                        for (sq in piece.mSquares) {
+                            assertEquals("$axis layer $i", i, layerOf(axis, sq))
+                        }
+                    }
+                }
+            }
+            // seen from the front, columns go along x and rows down y
+            for (sq in mFrontSquares) {
+                assertEquals(mSizeZ - 1, layerOf(Axis.Z_AXIS, sq))
+                assertEquals(columnOf(sq), layerOf(Axis.X_AXIS, sq))
+                assertEquals(mSizeY - 1 - rowOf(sq), layerOf(Axis.Y_AXIS, sq))
+            }
+            for (sq in mBackSquares) assertEquals(0, layerOf(Axis.Z_AXIS, sq))
+            for (sq in mLeftSquares) assertEquals(0, layerOf(Axis.X_AXIS, sq))
+            for (sq in mRightSquares) assertEquals(mSizeX - 1, layerOf(Axis.X_AXIS, sq))
+            for (sq in mBottomSquares) assertEquals(0, layerOf(Axis.Y_AXIS, sq))
+            for (sq in mTopSquares) assertEquals(mSizeY - 1, layerOf(Axis.Y_AXIS, sq))
+        }
+    }
+
+    @Test
+    fun indicesMatchLayout() {
+        for (size in arrayOf(intArrayOf(2, 2, 2), intArrayOf(3, 3, 3), intArrayOf(4, 4, 4), intArrayOf(2, 3, 4))) {
+            TestCube(size[0], size[1], size[2]).checkIndices()
+        }
+    }
+
+    @Test
+    fun indicesFollowWholeCubeTurns() {
+        val random = Random(50)
+        for (size in arrayOf(intArrayOf(3, 3, 3), intArrayOf(2, 3, 4), intArrayOf(2, 2, 5))) {
+            val cube = TestCube(size[0], size[1], size[2])
+            repeat(20) {
+                val direction = if (random.nextBoolean()) Direction.CLOCKWISE else Direction.COUNTER_CLOCKWISE
+                cube.turnWhole(Axis.values()[random.nextInt(3)], direction)
+                cube.checkIndices()
+            }
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.mycompany.myrubikscube.cube
+
+import com.mycompany.myrubikscube.graphics.Axis
+import com.mycompany.myrubikscube.graphics.Direction
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+
+class FaceletStateTest {
+
+    private class Turn(val axis: Axis, val direction: Direction, val layer: Int)
+
+    private val sizes = arrayOf(intArrayOf(2, 2, 2), intArrayOf(3, 3, 3), intArrayOf(4, 4, 4), intArrayOf(5, 5, 5),
+        intArrayOf(2, 3, 4))
+
+    /**
+     * Facelet i of the result is the facelet whose color i takes after [turns]
+     */
+    private fun permutation(size: IntArray, vararg turns: Turn): IntArray {
+        val state = FaceletState(size[0], size[1], size[2])
+        for (i in 0 until state.count) {
+            state.colors[i] = i.toByte()
+        }
+        for (t in turns) {
+            state.turn(t.axis, t.direction, t.layer)
+        }
+        return IntArray(state.count) { state.colors[it].toInt() and 0xff }
+    }
+
+    private fun identity(size: IntArray) = permutation(size)
+
+    private fun isSymmetric(size: IntArray, axis: Int) = size[(axis + 1) % 3] == size[(axis + 2) % 3]
+
+    @Test
+    fun layerTurnsAreBijections() {
+        for (size in sizes) {
+            for (axis in Axis.values()) {
+                for (layer in 0 until size[axis.ordinal]) {
+                    for (direction in Direction.values()) {
+                        val perm = permutation(size, Turn(axis, direction, layer))
+                        assertArrayEquals("$axis $layer $direction", identity(size), perm.sortedArray())
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    fun clockwiseThenCounterClockwiseIsIdentity() {
+        for (size in sizes) {
+            for (axis in Axis.values()) {
+                for (layer in 0 until size[axis.ordinal]) {
+                    val cw = Turn(axis, Direction.CLOCKWISE, layer)
+                    val ccw = Turn(axis, Direction.COUNTER_CLOCKWISE, layer)
+                    assertArrayEquals("$axis $layer", identity(size), permutation(size, cw, ccw))
+                    assertArrayEquals("$axis $layer", identity(size), permutation(size, ccw, cw))
+                }
+            }
+        }
+    }
+
+    @Test
+    fun layerTurnsHaveOrderFourOrTwo() {
+        for (size in sizes) {
+            for (axis in Axis.values()) {
+                val order = if (isSymmetric(size, axis.ordinal)) 4 else 2
+                for (layer in 0 until size[axis.ordinal]) {
+                    val turn = Turn(axis, Direction.CLOCKWISE, layer)
+                    for (n in 1 until order) {
+                        val perm = permutation(size, *Array(n) { turn })
+                        assertTrue("$axis $layer x$n", !perm.contentEquals(identity(size)))
+                    }
+                    assertArrayEquals("$axis $layer", identity(size), permutation(size, *Array(order) { turn }))
+                }
+            }
+        }
+    }
+
+    @Test
+    fun layerTurnsMoveTheirFacelets() {
+        for (n in 2..5) {
+            val size = intArrayOf(n, n, n)
+            // the ring of 4 faces, plus the face of an outer layer but its center
+            val outer = 4 * n + n * n - n % 2
+            val inner = 4 * n
+            for (axis in Axis.values()) {
+                for (layer in 0 until n) {
+                    val perm = permutation(size, Turn(axis, Direction.CLOCKWISE, layer))
+                    val moved = perm.indices.count { perm[it] != it }
+                    assertEquals("${n}x$n $axis $layer", if (layer == 0 || layer == n - 1) outer else inner, moved)
+                }
+            }
+        }
+    }
+}
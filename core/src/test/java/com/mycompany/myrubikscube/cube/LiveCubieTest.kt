@@ -0,0 +1,86 @@
+package com.mycompany.myrubikscube.cube
+
+import com.mycompany.myrubikscube.cs.min2phase.Search
+import com.mycompany.myrubikscube.graphics.Axis
+import com.mycompany.myrubikscube.graphics.Direction
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.Random
+
+class LiveCubieTest {
+
+    private val solved = "UUUUUUUUURRRRRRRRRFFFFFFFFFDDDDDDDDDLLLLLLLLLBBBBBBBBB"
+
+    /**
+     * Play one manual turn through its animation
+     */
+    private fun turn(cube: RubiksCube3x3x3, axis: Axis, direction: Direction, face: Int, faceCount: Int = 1) {
+        val version = cube.stateVersion
+        cube.rotate(Rotation(axis, direction, face, faceCount))
+        var frames = 0
+        while (cube.stateVersion == version) {
+            cube.onNextFrame()
+            if (++frames > 1000) throw AssertionError("Turn does not end")
+        }
+    }
+
+    private fun randomDirection(random: Random) =
+        if (random.nextBoolean()) Direction.CLOCKWISE else Direction.COUNTER_CLOCKWISE
+
+    /**
+     * Solve from [RubiksCube3x3x3.liveCubie] and apply the solution in the current frame
+     */
+    private fun solveFromCubie(cube: RubiksCube3x3x3) {
+        val solution = Search().solution(cube.liveCubie, 21, 100_000_000, 0, 0)
+        assertFalse(solution, solution.startsWith("Error"))
+        cube.applyAlgorithm(Notation(3).parse(cube.toCurrentFrame(solution)))
+    }
+
+    @Test
+    fun solvedCubeMatches() {
+        val cube = RubiksCube3x3x3()
+        assertEquals(solved, cube.toMin2PhaseString())
+        assertEquals(solved, cube.liveCubie.toFacelets())
+        assertTrue(cube.liveCubie.isSolved)
+    }
+
+    @Test
+    fun outerTurnsMatchFacelets() {
+        val random = Random(49)
+        val cube = RubiksCube3x3x3()
+        repeat(40) {
+            val face = if (random.nextBoolean()) 0 else 2
+            turn(cube, Axis.values()[random.nextInt(3)], randomDirection(random), face)
+            assertEquals(cube.toMin2PhaseString(), cube.liveCubie.toFacelets())
+        }
+    }
+
+    @Test
+    fun sliceAndWholeTurnsSolveInTheCurrentFrame() {
+        val random = Random(50)
+        repeat(5) {
+            val cube = RubiksCube3x3x3()
+            repeat(30) {
+                val axis = Axis.values()[random.nextInt(3)]
+                when (random.nextInt(3)) {
+                    0 -> turn(cube, axis, randomDirection(random), random.nextInt(3))
+                    1 -> turn(cube, axis, randomDirection(random), 1)
+                    else -> turn(cube, axis, randomDirection(random), 0, 3)
+                }
+            }
+            assertFalse(cube.stateTracker.isSolved)
+            solveFromCubie(cube)
+            assertTrue(cube.stateTracker.isSolved)
+        }
+    }
+
+    @Test
+    fun randomizeKeepsTheCubieInSync() {
+        val cube = RubiksCube3x3x3()
+        cube.randomize(50)
+        solveFromCubie(cube)
+        assertTrue(cube.stateTracker.isSolved)
+    }
+}
@@ -0,0 +1,109 @@
+package com.mycompany.myrubikscube.cube
+
+import com.mycompany.myrubikscube.graphics.Axis
+import com.mycompany.myrubikscube.graphics.Direction
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.Random
+
+class MoveHistoryTest {
+
+    private fun newState(): FaceletState {
+        val state = FaceletState(3, 3, 3)
+        for (i in 0 until state.count) {
+            state.colors[i] = i.toByte()
+        }
+        return state
+    }
+
+    private fun play(state: FaceletState, code: Short) {
+        state.turn(MoveCode.axis(code), MoveCode.direction(code), MoveCode.startFace(code))
+    }
+
+    private fun randomCode(random: Random): Short {
+        val direction = if (random.nextBoolean()) Direction.CLOCKWISE else Direction.COUNTER_CLOCKWISE
+        return MoveCode.encode(Axis.values()[random.nextInt(3)], direction, random.nextInt(3), 1)
+    }
+
+    /**
+     * Record [count] random moves, returning the colors at each position
+     */
+    private fun record(state: FaceletState, history: MoveHistory, random: Random, count: Int): Array<ByteArray> {
+        val snapshots = Array(count + 1) { ByteArray(0) }
+        snapshots[0] = state.colors.copyOf()
+        for (i in 1..count) {
+            val code = randomCode(random)
+            history.record(code)
+            play(state, code)
+            snapshots[i] = state.colors.copyOf()
+        }
+        return snapshots
+    }
+
+    @Test
+    fun seekReachesEveryPosition() {
+        val random = Random(45)
+        val state = newState()
+        val history = MoveHistory(state, interval = 8)
+        val snapshots = record(state, history, random, 100)
+        repeat(200) {
+            val target = random.nextInt(101)
+            history.seek(target) { play(state, it) }
+            assertEquals(target, history.position)
+            assertArrayEquals("position $target", snapshots[target], state.colors)
+        }
+    }
+
+    @Test
+    fun undoRedoAndRecordDropsRedo() {
+        val random = Random(46)
+        val state = newState()
+        val history = MoveHistory(state, interval = 4)
+        val snapshots = record(state, history, random, 10)
+        repeat(3) {
+            play(state, MoveCode.inverse(history.undo()))
+        }
+        assertArrayEquals(snapshots[7], state.colors)
+        assertTrue(history.canRedo())
+        play(state, history.redo())
+        assertArrayEquals(snapshots[8], state.colors)
+
+        val code = randomCode(random)
+        history.record(code)
+        play(state, code)
+        assertEquals(9, history.end)
+        assertFalse(history.canRedo())
+        val latest = state.colors.copyOf()
+        history.seek(0) { play(state, it) }
+        assertArrayEquals(snapshots[0], state.colors)
+        history.seek(9) { play(state, it) }
+        assertArrayEquals(latest, state.colors)
+    }
+
+    @Test
+    fun fullHistoryDropsOldestMoves() {
+        val random = Random(47)
+        val state = newState()
+        val history = MoveHistory(state, interval = 8, maxMoves = 64)
+        val snapshots = record(state, history, random, 150)
+        assertEquals(150 - 64, history.first)
+        assertEquals(150, history.end)
+        for (target in intArrayOf(history.first, 100, 129, 150, history.first + 1)) {
+            history.seek(target) { play(state, it) }
+            assertArrayEquals("position $target", snapshots[target], state.colors)
+        }
+        history.seek(history.first) { play(state, it) }
+        assertFalse(history.canUndo())
+    }
+
+    @Test(expected = IndexOutOfBoundsException::class)
+    fun seekBeforeFirstThrows() {
+        val state = newState()
+        val history = MoveHistory(state, interval = 8, maxMoves = 64)
+        record(state, history, Random(48), 80)
+        history.seek(history.first - 1) { play(state, it) }
+    }
+}
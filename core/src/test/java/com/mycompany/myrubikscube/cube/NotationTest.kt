@@ -0,0 +1,90 @@
+package com.mycompany.myrubikscube.cube
+
+import com.mycompany.myrubikscube.graphics.Axis
+import com.mycompany.myrubikscube.graphics.Direction
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import java.io.StringReader
+import java.util.Random
+
+class NotationTest {
+
+    private fun code(axis: Axis, direction: Direction, start: Int, count: Int) =
+        MoveCode.encode(axis, direction, start, count)
+
+    @Test
+    fun parsesOuterAndWideMoves() {
+        val notation = Notation(4)
+        val cw = Direction.CLOCKWISE
+        val ccw = Direction.COUNTER_CLOCKWISE
+        assertArrayEquals(shortArrayOf(code(Axis.X_AXIS, cw, 3, 1)), notation.parse("R").toCodes())
+        assertArrayEquals(shortArrayOf(code(Axis.X_AXIS, cw, 0, 1)), notation.parse("L'").toCodes())
+        assertArrayEquals(shortArrayOf(code(Axis.Y_AXIS, cw, 3, 1), code(Axis.Y_AXIS, cw, 3, 1)),
+            notation.parse("U2").toCodes())
+        assertArrayEquals(shortArrayOf(code(Axis.Z_AXIS, cw, 2, 2)), notation.parse("Fw").toCodes())
+        assertArrayEquals(shortArrayOf(code(Axis.Z_AXIS, cw, 2, 2)), notation.parse("f").toCodes())
+        assertArrayEquals(shortArrayOf(code(Axis.Y_AXIS, ccw, 0, 3)), notation.parse("3Dw").toCodes())
+        assertArrayEquals(shortArrayOf(code(Axis.X_AXIS, cw, 1, 1)), notation.parse("3R").toCodes())
+        assertArrayEquals(shortArrayOf(code(Axis.X_AXIS, cw, 1, 2)), notation.parse("2-3Rw").toCodes())
+        assertArrayEquals(shortArrayOf(code(Axis.X_AXIS, ccw, 1, 2)), notation.parse("M").toCodes())
+        assertArrayEquals(shortArrayOf(code(Axis.Y_AXIS, ccw, 0, 4)), notation.parse("y'").toCodes())
+    }
+
+    @Test
+    fun separatorsDoNotMatter() {
+        val notation = Notation(3)
+        val expected = notation.parse("R U R' U'")
+        assertEquals(expected, notation.parse("RUR'U'"))
+        assertEquals(expected, notation.parse("(R U), (R' U')."))
+        assertEquals(expected, notation.parse(" R\tU\nR'\r\nU' "))
+    }
+
+    @Test
+    fun readerMatchesText() {
+        val notation = Notation(5)
+        val text = "R U2 3Lw' M E S x y' 2-4Fw2 b"
+        val codes = ArrayList<Short>()
+        notation.parse(StringReader(text), Notation.MoveSink { codes.add(it) })
+        assertArrayEquals(notation.parse(text).toCodes(), codes.toShortArray())
+    }
+
+    @Test
+    fun formatThenParseGivesTheSameMoves() {
+        val random = Random(47)
+        for (size in arrayOf(intArrayOf(2, 2, 2), intArrayOf(3, 3, 3), intArrayOf(4, 4, 4), intArrayOf(7, 7, 7),
+            intArrayOf(2, 3, 4))) {
+            val notation = Notation(size[0], size[1], size[2])
+            for (i in 0 until 50) {
+                val algo = Algorithm()
+                repeat(random.nextInt(30)) {
+                    val axis = Axis.values()[random.nextInt(3)]
+                    val n = size[axis.ordinal]
+                    val start = random.nextInt(n)
+                    val direction = if (random.nextBoolean()) Direction.CLOCKWISE else Direction.COUNTER_CLOCKWISE
+                    algo.addStep(axis, direction, start, 1 + random.nextInt(n - start))
+                    if (random.nextInt(4) == 0) algo.repeatLastStep()
+                }
+                val text = notation.format(algo)
+                assertEquals(text, algo, notation.parse(text))
+            }
+        }
+    }
+
+    @Test
+    fun formatWritesHalfTurnsAndPrimes() {
+        val notation = Notation(3)
+        assertEquals("R U2 R' x y2 z'", notation.format(notation.parse("R U U R' x y y z'")))
+        assertEquals("M E' S", notation.format(notation.parse("M E' S")))
+    }
+
+    @Test(expected = IllegalArgumentException::class)
+    fun unknownMoveThrows() {
+        Notation(3).parse("R Q")
+    }
+
+    @Test(expected = IllegalArgumentException::class)
+    fun layerOutsideTheCubeThrows() {
+        Notation(3).parse("4R")
+    }
+}
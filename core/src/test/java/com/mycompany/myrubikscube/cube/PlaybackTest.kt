@@ -0,0 +1,75 @@
+package com.mycompany.myrubikscube.cube
+
+import com.mycompany.myrubikscube.graphics.Axis
+import com.mycompany.myrubikscube.graphics.Direction
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Test
+import java.util.Random
+
+class PlaybackTest {
+
+    /**
+     * Exposes the animated algorithm playback of [RubiksCube] and its facelets
+     */
+    private class TestCube(x: Int, y: Int, z: Int) : RubiksCube(x, y, z) {
+        val colors: ByteArray
+            get() = mFacelets.colors.copyOf()
+
+        fun play(algo: Algorithm) {
+            mState = CubeState.TESTING
+            setAlgo(algo)
+            var frames = 0
+            while (mState != CubeState.IDLE) {
+                onNextFrame()
+                if (++frames > 1_000_000) throw AssertionError("Playback does not end")
+            }
+        }
+    }
+
+    private fun randomAlgorithm(random: Random, sizes: IntArray, length: Int): Algorithm {
+        val algo = Algorithm()
+        val axes = Axis.values()
+        repeat(length) {
+            val axis = random.nextInt(3)
+            val direction = if (random.nextBoolean()) Direction.CLOCKWISE else Direction.COUNTER_CLOCKWISE
+            algo.addStep(axes[axis], direction, random.nextInt(sizes[axis]))
+        }
+        return algo
+    }
+
+    private fun assertPlaybackMatchesApply(x: Int, y: Int, z: Int, algo: Algorithm) {
+        val animated = TestCube(x, y, z)
+        animated.play(algo)
+        val instant = TestCube(x, y, z)
+        instant.applyAlgorithm(algo)
+        assertArrayEquals(Notation(x, y, z).format(algo), instant.colors, animated.colors)
+    }
+
+    @Test
+    fun repeatedTurnsPlayAsApplied() {
+        assertPlaybackMatchesApply(3, 3, 3, Notation(3).parse("R R U"))
+        assertPlaybackMatchesApply(3, 3, 3, Notation(3).parse("R U U' R' F"))
+    }
+
+    @Test
+    fun randomAlgorithmsPlayAsApplied() {
+        val random = Random(48)
+        val sizes = arrayOf(intArrayOf(2, 2, 2), intArrayOf(3, 3, 3), intArrayOf(4, 4, 4), intArrayOf(2, 3, 4))
+        for (size in sizes) {
+            for (i in 0 until 20) {
+                val algo = randomAlgorithm(random, size, 1 + random.nextInt(30))
+                assertPlaybackMatchesApply(size[0], size[1], size[2], algo)
+            }
+        }
+    }
+
+    @Test
+    fun cancellingAlgorithmLeavesCubeSolved() {
+        val cube = TestCube(3, 3, 3)
+        val solved = cube.colors
+        cube.play(Notation(3).parse("R U R' U'").let { it.concat(it.inverse()) })
+        assertArrayEquals(solved, cube.colors)
+        assertEquals(8, cube.getMoveCount())
+    }
+}
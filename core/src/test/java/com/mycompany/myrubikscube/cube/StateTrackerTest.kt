@@ -0,0 +1,87 @@
+package com.mycompany.myrubikscube.cube
+
+import com.mycompany.myrubikscube.graphics.Axis
+import com.mycompany.myrubikscube.graphics.Direction
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertNotEquals
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import java.util.Random
+
+class StateTrackerTest {
+
+    /**
+     * Exposes the facelets and turns of [RubiksCube]
+     */
+    private class TestCube(x: Int, y: Int, z: Int) : RubiksCube(x, y, z) {
+        val facelets: FaceletState
+            get() = mFacelets
+
+        fun turn(axis: Axis, direction: Direction, layer: Int) {
+            rotate(axis, direction, layer)
+        }
+
+        fun size(axis: Axis) = getAxisSize(axis)
+    }
+
+    private fun zobrist(state: FaceletState): Long {
+        var hash = 0L
+        for (i in 0 until state.count) {
+            hash = hash xor StateTracker.key(i, state.getColor(i))
+        }
+        return hash
+    }
+
+    private fun assertSolved(cube: TestCube) {
+        val tracker = cube.stateTracker
+        assertEquals(Cube.FACE_COUNT, tracker.solvedFaces)
+        assertEquals(tracker.pieceCount, tracker.correctPieces)
+        assertTrue(tracker.isSolved)
+        assertEquals(zobrist(cube.facelets), tracker.hash)
+    }
+
+    @Test
+    fun solvedCubeCountsEverything() {
+        for (size in arrayOf(intArrayOf(2, 2, 2), intArrayOf(3, 3, 3), intArrayOf(4, 4, 4), intArrayOf(2, 3, 4))) {
+            assertSolved(TestCube(size[0], size[1], size[2]))
+        }
+    }
+
+    @Test
+    fun trackerFollowsTurns() {
+        val random = Random(43)
+        for (size in arrayOf(intArrayOf(3, 3, 3), intArrayOf(4, 4, 4), intArrayOf(2, 3, 4))) {
+            val cube = TestCube(size[0], size[1], size[2])
+            val solvedHash = cube.stateTracker.hash
+            val axes = IntArray(30)
+            val layers = IntArray(30)
+            for (i in 0 until 30) {
+                axes[i] = random.nextInt(3)
+                layers[i] = random.nextInt(size[axes[i]])
+                cube.turn(Axis.values()[axes[i]], Direction.CLOCKWISE, layers[i])
+                assertEquals(zobrist(cube.facelets), cube.stateTracker.hash)
+            }
+            for (i in 29 downTo 0) {
+                cube.turn(Axis.values()[axes[i]], Direction.COUNTER_CLOCKWISE, layers[i])
+                assertEquals(zobrist(cube.facelets), cube.stateTracker.hash)
+            }
+            assertEquals(solvedHash, cube.stateTracker.hash)
+            assertSolved(cube)
+        }
+    }
+
+    @Test
+    fun outerTurnBreaksTheCube() {
+        val cube = TestCube(3, 3, 3)
+        val solvedHash = cube.stateTracker.hash
+        cube.turn(Axis.X_AXIS, Direction.CLOCKWISE, cube.size(Axis.X_AXIS) - 1)
+        val tracker = cube.stateTracker
+        assertFalse(tracker.isSolved)
+        // R leaves L solved, the other faces each get a column of another color
+        assertEquals(2, tracker.solvedFaces)
+        // the R center stays, the 8 other pieces of the layer move
+        assertEquals(tracker.pieceCount - 8, tracker.correctPieces)
+        assertNotEquals(solvedHash, tracker.hash)
+    }
+}